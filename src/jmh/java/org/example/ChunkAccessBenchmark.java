@@ -0,0 +1,84 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Block access patterns on a single chunk's palette storage: sequential and
+ * random reads, random writes, and whole-chunk expand and compress as the
+ * mesher and generator use them. {@code blocks} picks how many distinct ids
+ * the chunk holds, which decides how many bits per block it packs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChunkAccessBenchmark {
+    private static final int SIZE = 16;
+    private static final int VOLUME = SIZE * SIZE * SIZE;
+
+    @Param({"1", "4", "16"})
+    public int blocks;
+
+    private Chunk chunk;
+    private byte[] dense;
+    private final byte[] out = new byte[VOLUME];
+    private final int[] randomIndices = new int[VOLUME];
+
+    @Setup
+    public void setup() {
+        Random random = new Random(3);
+        dense = new byte[VOLUME];
+        for (int i = 0; i < VOLUME; i++) {
+            dense[i] = (byte) random.nextInt(blocks);
+            randomIndices[i] = random.nextInt(VOLUME);
+        }
+        chunk = new Chunk(0, 0, 0, SIZE, SIZE, SIZE);
+        chunk.setBlocks(dense);
+    }
+
+    @Benchmark
+    public int sequentialGet() {
+        int sum = 0;
+        for (int y = 0; y < SIZE; y++) {
+            for (int z = 0; z < SIZE; z++) {
+                for (int x = 0; x < SIZE; x++) {
+                    sum += chunk.getBlock(x, y, z);
+                }
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int randomGet() {
+        int sum = 0;
+        for (int index : randomIndices) {
+            sum += chunk.getBlock(index & 15, index >> 8, (index >> 4) & 15);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public Chunk randomSet() {
+        // Writes ids already in the palette, so the storage layout never changes between invocations
+        for (int i = 0; i < VOLUME; i++) {
+            int index = randomIndices[i];
+            chunk.setBlock(index & 15, index >> 8, (index >> 4) & 15, dense[i]);
+        }
+        return chunk;
+    }
+
+    @Benchmark
+    public byte[] getBlocks() {
+        chunk.getBlocks(out);
+        return out;
+    }
+
+    @Benchmark
+    public Chunk setBlocks() {
+        chunk.setBlocks(dense);
+        return chunk;
+    }
+}
@@ -0,0 +1,144 @@
+package org.example;
+
+import org.lwjgl.system.MemoryUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the off-heap {@link VertexBuilder} meshing path against the old
+ * boxed {@code List<Float>} path, including the copies each one needs to get
+ * the vertices into upload-ready native memory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChunkMeshBenchmark {
+    @Param({"solid", "surface"})
+    public String terrain;
+
+    private Chunk chunk;
+    private VertexBuilder builder;
+    private final ChunkSnapshot snapshot = new ChunkSnapshot();
+
+    @Setup
+    public void setup() {
+        chunk = new Chunk(0, 0, 0, 16, 16, 16);
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                // Gentle slope so the surface case has both top and side faces
+                int surface = terrain.equals("solid") ? 15 : 6 + (x + z) / 4;
+                for (int y = 0; y <= surface; y++) {
+                    chunk.setBlock(x, y, z, y == surface ? Block.GRASS : Block.STONE);
+                }
+            }
+        }
+        builder = new VertexBuilder(VertexFormat.FLOAT, 4096);
+    }
+
+    @TearDown
+    public void tearDown() {
+        builder.free();
+    }
+
+    @Benchmark
+    public long vertexBuilder() {
+        builder.reset();
+        snapshot.capture(null, chunk);
+        ChunkMesher.generate(snapshot, builder, ChunkMesher.Mode.NAIVE);
+        return builder.getAddress() + builder.getSizeInBytes();
+    }
+
+    @Benchmark
+    public int boxedList() {
+        List<Float> vertices = new ArrayList<>();
+        LegacyMesher.generate(chunk, vertices);
+
+        float[] vertexArray = new float[vertices.size()];
+        for (int i = 0; i < vertices.size(); i++) {
+            vertexArray[i] = vertices.get(i);
+        }
+
+        FloatBuffer vertexBuffer = MemoryUtil.memAllocFloat(vertexArray.length);
+        vertexBuffer.put(vertexArray).flip();
+        int remaining = vertexBuffer.remaining();
+        MemoryUtil.memFree(vertexBuffer);
+        return remaining;
+    }
+
+    /** The pre-VertexBuilder mesher, kept verbatim as the baseline. */
+    private static final class LegacyMesher {
+        private static final int ATLAS_SIZE = 16;
+        private static final float UV_SIZE = 1.0f / ATLAS_SIZE;
+
+        static void generate(Chunk chunk, List<Float> vertices) {
+            for (int y = 0; y < chunk.height; y++) {
+                for (int z = 0; z < chunk.depth; z++) {
+                    for (int x = 0; x < chunk.width; x++) {
+                        byte block = chunk.getBlock(x, y, z);
+                        if (block == Block.AIR) continue;
+
+                        if (isAir(chunk, x, y, z + 1)) addFace(vertices, x, y, z, 0, block);
+                        if (isAir(chunk, x, y, z - 1)) addFace(vertices, x, y, z, 1, block);
+                        if (isAir(chunk, x - 1, y, z)) addFace(vertices, x, y, z, 2, block);
+                        if (isAir(chunk, x + 1, y, z)) addFace(vertices, x, y, z, 3, block);
+                        if (isAir(chunk, x, y + 1, z)) addFace(vertices, x, y, z, 4, block);
+                        if (isAir(chunk, x, y - 1, z)) addFace(vertices, x, y, z, 5, block);
+                    }
+                }
+            }
+        }
+
+        private static boolean isAir(Chunk chunk, int x, int y, int z) {
+            if (x < 0 || x >= chunk.width || y < 0 || y >= chunk.height || z < 0 || z >= chunk.depth) {
+                return true;
+            }
+            return chunk.getBlock(x, y, z) == Block.AIR;
+        }
+
+        private static void addFace(List<Float> v, int x, int y, int z, int face, byte blockId) {
+            float uMin = (blockId % ATLAS_SIZE) * UV_SIZE;
+            float vMin = (blockId / ATLAS_SIZE) * UV_SIZE;
+            float uMax = uMin + UV_SIZE;
+            float vMax = vMin + UV_SIZE;
+            float l = -0.5f, h = 0.5f;
+
+            switch (face) {
+                case 0 -> addQuad(v, x + l, y + l, z + h, x + h, y + l, z + h, x + h, y + h, z + h, x + l, y + h, z + h, 0, 0, 1, uMin, vMax, uMax, vMin);
+                case 1 -> addQuad(v, x + h, y + l, z + l, x + l, y + l, z + l, x + l, y + h, z + l, x + h, y + h, z + l, 0, 0, -1, uMin, vMax, uMax, vMin);
+                case 2 -> addQuad(v, x + l, y + l, z + l, x + l, y + l, z + h, x + l, y + h, z + h, x + l, y + h, z + l, -1, 0, 0, uMin, vMax, uMax, vMin);
+                case 3 -> addQuad(v, x + h, y + l, z + h, x + h, y + l, z + l, x + h, y + h, z + l, x + h, y + h, z + h, 1, 0, 0, uMin, vMax, uMax, vMin);
+                case 4 -> addQuad(v, x + l, y + h, z + h, x + h, y + h, z + h, x + h, y + h, z + l, x + l, y + h, z + l, 0, 1, 0, uMin, vMax, uMax, vMin);
+                default -> addQuad(v, x + l, y + l, z + l, x + h, y + l, z + l, x + h, y + l, z + h, x + l, y + l, z + h, 0, -1, 0, uMin, vMax, uMax, vMin);
+            }
+        }
+
+        private static void addQuad(List<Float> v,
+                                    float x0, float y0, float z0, float x1, float y1, float z1,
+                                    float x2, float y2, float z2, float x3, float y3, float z3,
+                                    float nx, float ny, float nz,
+                                    float uMin, float vMax, float uMax, float vMin) {
+            addVertex(v, x0, y0, z0, nx, ny, nz, uMin, vMax);
+            addVertex(v, x1, y1, z1, nx, ny, nz, uMax, vMax);
+            addVertex(v, x2, y2, z2, nx, ny, nz, uMax, vMin);
+            addVertex(v, x2, y2, z2, nx, ny, nz, uMax, vMin);
+            addVertex(v, x3, y3, z3, nx, ny, nz, uMin, vMin);
+            addVertex(v, x0, y0, z0, nx, ny, nz, uMin, vMax);
+        }
+
+        private static void addVertex(List<Float> v, float x, float y, float z,
+                                      float nx, float ny, float nz, float u, float t) {
+            v.add(x);
+            v.add(y);
+            v.add(z);
+            v.add(nx);
+            v.add(ny);
+            v.add(nz);
+            v.add(u);
+            v.add(t);
+        }
+    }
+}
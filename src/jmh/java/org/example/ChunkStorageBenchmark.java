@@ -0,0 +1,64 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Loading saved chunks back from region files: read, inflate and rebuild
+ * palette storage, the path a revisited column takes instead of generation.
+ * The chunks are saved once in setup from a generated, then edited, world.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChunkStorageBenchmark {
+    private static final int COLUMNS = 8;
+    private static final int HEIGHT = 8;
+
+    private Path directory;
+    private ChunkStorage storage;
+    private final Chunk target = new Chunk(0, 0, 0, 16, 16, 16);
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("chunk-storage-bench");
+        ChunkStorage writer = new ChunkStorage(directory, HEIGHT);
+        World world = new World(HEIGHT, writer);
+        for (int x = 0; x < COLUMNS; x++) {
+            for (int z = 0; z < COLUMNS; z++) {
+                for (int y = 0; y < HEIGHT; y++) {
+                    // Flip one block so every chunk is dirty and gets written
+                    byte block = world.getChunk(x, y, z).getBlock(0, 0, 0);
+                    world.setBlock(x * 16, y * 16, z * 16, block == Block.AIR ? Block.STONE : Block.AIR);
+                }
+            }
+        }
+        world.saveAll();
+        writer.close();
+
+        storage = new ChunkStorage(directory, HEIGHT);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        storage.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Chunk load() {
+        int index = next++ & (COLUMNS * COLUMNS * HEIGHT - 1);
+        int column = index / HEIGHT;
+        target.setBlocks(storage.load(column % COLUMNS, index % HEIGHT, column / COLUMNS));
+        return target;
+    }
+}
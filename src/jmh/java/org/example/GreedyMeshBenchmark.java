@@ -0,0 +1,86 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meshes every chunk of a generated {@link World} in each {@link ChunkMesher.Mode}
+ * and prints the total vertex count and VBO size per mode and {@link VertexFormat},
+ * then per level of detail, so the greedy, packed-format and LOD savings show up
+ * next to the meshing time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GreedyMeshBenchmark {
+    @Param({"NAIVE", "GREEDY"})
+    public ChunkMesher.Mode mode;
+
+    private final List<Chunk> chunks = new ArrayList<>();
+    private World world;
+    private VertexBuilder builder;
+    private final ChunkSnapshot snapshot = new ChunkSnapshot();
+    private final ChunkSnapshot lodSnapshot = new ChunkSnapshot();
+
+    @Setup
+    public void setup() {
+        world = new World(8);
+        for (int x = 0; x < 4; x++) {
+            for (int y = 0; y < 8; y++) {
+                for (int z = 0; z < 4; z++) {
+                    chunks.add(world.getChunk(x, y, z));
+                }
+            }
+        }
+        builder = new VertexBuilder(VertexFormat.FLOAT, 4096);
+
+        for (ChunkMesher.Mode m : ChunkMesher.Mode.values()) {
+            for (VertexFormat format : VertexFormat.values()) {
+                long vertices = 0;
+                long bytes = 0;
+                for (Chunk chunk : chunks) {
+                    builder.reset(format);
+                    snapshot.capture(world, chunk);
+                    ChunkMesher.generate(snapshot, builder, m);
+                    vertices += builder.getVertexCount();
+                    bytes += builder.getSizeInBytes();
+                }
+                System.out.printf("%n%s/%s: %d vertices, %.1f KiB of vertex data over %d chunks%n",
+                        m, format, vertices, bytes / 1024.0, chunks.size());
+            }
+        }
+
+        for (int level = 1; level < ChunkMesh.LOD_LEVELS; level++) {
+            long vertices = 0;
+            for (Chunk chunk : chunks) {
+                builder.reset(VertexFormat.PACKED);
+                snapshot.capture(world, chunk);
+                lodSnapshot.downsample(snapshot, 1 << level);
+                ChunkMesher.generate(lodSnapshot, builder, ChunkMesher.Mode.GREEDY);
+                vertices += builder.getVertexCount();
+            }
+            System.out.printf("GREEDY/PACKED at LOD %d (%dx): %d vertices%n", level, 1 << level, vertices);
+        }
+        builder.reset(VertexFormat.FLOAT);
+    }
+
+    @TearDown
+    public void tearDown() {
+        builder.free();
+    }
+
+    @Benchmark
+    public int meshWorld() {
+        int vertices = 0;
+        for (Chunk chunk : chunks) {
+            builder.reset();
+            snapshot.capture(world, chunk);
+            ChunkMesher.generate(snapshot, builder, mode);
+            vertices += builder.getVertexCount();
+        }
+        return vertices;
+    }
+}
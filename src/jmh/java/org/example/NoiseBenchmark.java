@@ -0,0 +1,75 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One chunk column's worth of height samples (or a larger grid), per sample
+ * through the scalar call versus the batch API with and without the Vector
+ * API. Setup fails if any batch result differs from the scalar one in any bit.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class NoiseBenchmark {
+    @Param({"16", "64"})
+    public int size;
+
+    private final Noise noise = new Noise(1234L);
+    private double[] expected;
+    private double[] out;
+
+    private static final double X0 = -123.4;
+    private static final double Z0 = 56.7;
+    private static final double STEP = 1 / 50.0;
+
+    @Setup
+    public void setup() {
+        expected = new double[size * size];
+        out = new double[size * size];
+        noise.noiseScalar(expected, X0, Z0, STEP, size, size);
+
+        for (int j = 0; j < size; j++) {
+            for (int i = 0; i < size; i++) {
+                check(noise.noise(X0 + i * STEP, Z0 + j * STEP), i + j * size, "scalar");
+            }
+        }
+        if (Noise.isVectorized()) {
+            NoiseVectorized.noise(noise, out, X0, Z0, STEP, size, size);
+            for (int k = 0; k < out.length; k++) {
+                check(out[k], k, "vectorized");
+            }
+        }
+        System.out.println("Noise batch API vectorized: " + Noise.isVectorized());
+    }
+
+    private void check(double actual, int k, String path) {
+        if (Double.doubleToRawLongBits(actual) != Double.doubleToRawLongBits(expected[k])) {
+            throw new IllegalStateException(path + " sample " + k + " is " + actual + ", expected " + expected[k]);
+        }
+    }
+
+    @Benchmark
+    public void scalarCalls(Blackhole bh) {
+        for (int j = 0; j < size; j++) {
+            double z = Z0 + j * STEP;
+            for (int i = 0; i < size; i++) {
+                bh.consume(noise.noise(X0 + i * STEP, z));
+            }
+        }
+    }
+
+    @Benchmark
+    public double[] batchScalar() {
+        noise.noiseScalar(out, X0, Z0, STEP, size, size);
+        return out;
+    }
+
+    @Benchmark
+    public double[] batch() {
+        noise.noise(out, X0, Z0, STEP, size, size);
+        return out;
+    }
+}
@@ -0,0 +1,76 @@
+package org.example;
+
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Casts a fixed set of rays from above the terrain, looking down at random
+ * angles, with {@link VoxelRaycast} and with a fixed-step march that looks
+ * its chunk up on every sample, as picking code often starts out doing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RaycastBenchmark {
+    private static final int RAYS = 256;
+    private static final float MAX_DISTANCE = 96;
+    private static final float MARCH_STEP = 0.05f;
+
+    private World world;
+    private final Vector3f[] origins = new Vector3f[RAYS];
+    private final Vector3f[] directions = new Vector3f[RAYS];
+    private final RaycastHit hit = new RaycastHit();
+    private final Vector3f point = new Vector3f();
+
+    @Setup
+    public void setup() {
+        world = new World(8);
+        world.pregenerate(-6, -6, 6, 6);
+
+        Random random = new Random(7);
+        for (int i = 0; i < RAYS; i++) {
+            float x = random.nextFloat() * 64 - 32;
+            float z = random.nextFloat() * 64 - 32;
+            origins[i] = new Vector3f(x, world.getTerrainHeight((int) x, (int) z) + 10 + random.nextFloat() * 20, z);
+            directions[i] = new Vector3f(random.nextFloat() * 2 - 1, -random.nextFloat(), random.nextFloat() * 2 - 1).normalize();
+        }
+
+        int hits = 0;
+        for (int i = 0; i < RAYS; i++) {
+            if (VoxelRaycast.cast(world, origins[i], directions[i], MAX_DISTANCE, hit)) hits++;
+        }
+        System.out.printf("%n%d of %d rays hit terrain%n", hits, RAYS);
+    }
+
+    @Benchmark
+    public void dda(Blackhole bh) {
+        for (int i = 0; i < RAYS; i++) {
+            bh.consume(VoxelRaycast.cast(world, origins[i], directions[i], MAX_DISTANCE, hit));
+        }
+    }
+
+    @Benchmark
+    public void fixedStepMarch(Blackhole bh) {
+        for (int i = 0; i < RAYS; i++) {
+            bh.consume(march(origins[i], directions[i]));
+        }
+    }
+
+    private boolean march(Vector3f origin, Vector3f direction) {
+        for (float t = 0; t <= MAX_DISTANCE; t += MARCH_STEP) {
+            origin.fma(t, direction, point);
+            int x = (int) Math.floor(point.x + 0.5f);
+            int y = (int) Math.floor(point.y + 0.5f);
+            int z = (int) Math.floor(point.z + 0.5f);
+            Chunk chunk = world.getLoadedChunk(x >> 4, y >> 4, z >> 4);
+            if (chunk != null && chunk.getBlock(x & 15, y & 15, z & 15) != Block.AIR) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,47 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Terrain generation without a GL context: one chunk column's heightmap on
+ * its own, and a whole column of chunks built from it. Every call works on a
+ * column nobody has asked for before, so no cache hides the cost.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WorldGenerationBenchmark {
+    @Param({"1", "4", "8"})
+    public int octaves;
+
+    private HeightmapGenerator heightmap;
+    private World world;
+    private int nextColumn;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        // One cached column is enough for a column's own chunks to share it
+        heightmap = new HeightmapGenerator(42L, octaves, 20, 8 * 16 - 1, 1);
+        world = new World(8, heightmap, null);
+        nextColumn = 0;
+    }
+
+    @Benchmark
+    public int[] heightmap() {
+        int column = nextColumn++;
+        return heightmap.getHeights(column, column >> 10);
+    }
+
+    @Benchmark
+    public Chunk column() {
+        int column = nextColumn++;
+        Chunk chunk = world.getChunk(column, 0, 0);
+        // Keep the world from filling memory over a long iteration
+        if ((column & 255) == 255) {
+            world.unloadColumnsOutside(column, 0, 0);
+        }
+        return chunk;
+    }
+}
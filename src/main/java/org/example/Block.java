@@ -1,8 +1,44 @@
 package org.example;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class Block {
     public static final byte AIR = 0;
     public static final byte GRASS = 1;
     public static final byte DIRT = 2;
     public static final byte STONE = 3;
+
+    // Texture image for each block id, indexed by id; blocks naming the same image share a texture array layer
+    private static final String[] TEXTURE_NAMES = {null, "grass", "dirt", "stone"};
+
+    private static final int[] TEXTURE_LAYERS = new int[256];
+    private static final List<String> LAYER_TEXTURE_NAMES = new ArrayList<>();
+
+    static {
+        for (int id = 0; id < TEXTURE_NAMES.length; id++) {
+            String name = TEXTURE_NAMES[id];
+            if (name == null) continue;
+            int layer = LAYER_TEXTURE_NAMES.indexOf(name);
+            if (layer < 0) {
+                layer = LAYER_TEXTURE_NAMES.size();
+                LAYER_TEXTURE_NAMES.add(name);
+            }
+            TEXTURE_LAYERS[id] = layer;
+        }
+    }
+
+    /** The block's layer in the {@link BlockTextures} array. */
+    public static int getTextureLayer(byte id) {
+        return TEXTURE_LAYERS[id & 0xFF];
+    }
+
+    public static int getTextureLayerCount() {
+        return LAYER_TEXTURE_NAMES.size();
+    }
+
+    /** Name of the image that fills the given layer, without directory or extension. */
+    public static String getLayerTextureName(int layer) {
+        return LAYER_TEXTURE_NAMES.get(layer);
+    }
 }
@@ -0,0 +1,106 @@
+package org.example;
+
+import org.lwjgl.opengl.GL;
+import org.lwjgl.stb.STBImage;
+import org.lwjgl.stb.STBImageResize;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+import static org.lwjgl.opengl.EXTTextureFilterAnisotropic.*;
+import static org.lwjgl.opengl.GL11C.*;
+import static org.lwjgl.opengl.GL12C.*;
+import static org.lwjgl.opengl.GL30C.*;
+import static org.lwjgl.opengl.GL42C.*;
+
+/**
+ * Every block texture in one GL_TEXTURE_2D_ARRAY, one layer per image named
+ * by {@link Block}, all scaled to {@code layerSize} square. Each layer gets
+ * its own mip chain, so unlike an atlas, no level ever blends neighboring
+ * textures together, and tiling across greedy-merged quads is plain
+ * GL_REPEAT. Distant terrain samples the small mip levels, which keeps its
+ * texture fetches cache-friendly.
+ * <p>
+ * A block whose image is missing uses {@code fallback.png} instead.
+ */
+public class BlockTextures {
+    private final int id;
+
+    /**
+     * @param directory where the {@code <name>.png} images live
+     * @param fallback  image name used for any block texture that doesn't exist
+     * @param layerSize side of every layer in texels; a power of two
+     */
+    public BlockTextures(String directory, String fallback, int layerSize) {
+        if (layerSize <= 0 || Integer.bitCount(layerSize) != 1) {
+            // The mip count below assumes every level halves evenly down to 1x1
+            throw new IllegalArgumentException("Texture layer size must be a power of two: " + layerSize);
+        }
+        int layers = Block.getTextureLayerCount();
+        int levels = Integer.numberOfTrailingZeros(layerSize) + 1;
+
+        id = glGenTextures();
+        glBindTexture(GL_TEXTURE_2D_ARRAY, id);
+        glTexStorage3D(GL_TEXTURE_2D_ARRAY, levels, GL_RGBA8, layerSize, layerSize, layers);
+
+        ByteBuffer scaled = MemoryUtil.memAlloc(layerSize * layerSize * 4);
+        try {
+            for (int layer = 0; layer < layers; layer++) {
+                String name = Block.getLayerTextureName(layer);
+                File file = new File(directory, name + ".png");
+                if (!file.isFile()) {
+                    System.err.printf("No texture for %s, using %s.png%n", name, fallback);
+                    file = new File(directory, fallback + ".png");
+                }
+                loadScaled(file.getPath(), scaled, layerSize);
+                glTexSubImage3D(GL_TEXTURE_2D_ARRAY, 0, 0, 0, layer, layerSize, layerSize, 1, GL_RGBA, GL_UNSIGNED_BYTE, scaled);
+            }
+        } finally {
+            MemoryUtil.memFree(scaled);
+        }
+        glGenerateMipmap(GL_TEXTURE_2D_ARRAY);
+
+        // Crisp texels up close, blended mip levels at a distance
+        glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_WRAP_S, GL_REPEAT);
+        glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_WRAP_T, GL_REPEAT);
+        glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_MIN_FILTER, GL_NEAREST_MIPMAP_LINEAR);
+        glTexParameteri(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+        if (GL.getCapabilities().GL_EXT_texture_filter_anisotropic) {
+            // Keeps ground seen at a glancing angle from blurring into the smallest levels
+            float maxAnisotropy = glGetFloat(GL_MAX_TEXTURE_MAX_ANISOTROPY_EXT);
+            glTexParameterf(GL_TEXTURE_2D_ARRAY, GL_TEXTURE_MAX_ANISOTROPY_EXT, Math.min(8.0f, maxAnisotropy));
+        }
+        glBindTexture(GL_TEXTURE_2D_ARRAY, 0);
+    }
+
+    private static void loadScaled(String path, ByteBuffer out, int size) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer width = stack.mallocInt(1);
+            IntBuffer height = stack.mallocInt(1);
+            IntBuffer channels = stack.mallocInt(1);
+
+            ByteBuffer image = STBImage.stbi_load(path, width, height, channels, 4);
+            if (image == null) {
+                throw new RuntimeException("Failed to load texture: " + path + " (" + STBImage.stbi_failure_reason() + ")");
+            }
+            try {
+                if (!STBImageResize.stbir_resize_uint8(image, width.get(0), height.get(0), 0, out, size, size, 0, 4)) {
+                    throw new RuntimeException("Failed to scale texture: " + path);
+                }
+            } finally {
+                STBImage.stbi_image_free(image);
+            }
+        }
+    }
+
+    public void bind() {
+        glBindTexture(GL_TEXTURE_2D_ARRAY, id);
+    }
+
+    public void cleanup() {
+        glDeleteTextures(id);
+    }
+}
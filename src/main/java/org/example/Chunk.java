@@ -1,10 +1,29 @@
 package org.example;
 
+import java.util.Arrays;
+
+/**
+ * A box of blocks stored as indices into a small per-chunk palette of block
+ * ids. A chunk holding a single block id (all air, all stone) stores just
+ * that id; otherwise the indices are bit-packed at 1, 2, 4 or 8 bits per
+ * block, and {@link #setBlock} widens them when the palette fills up.
+ */
 public class Chunk {
     public final int chunkX, chunkY, chunkZ;
     public final int width, height, depth;
 
-    private byte[] blocks;
+    // Replaced wholesale when the layout changes, so a reader on another thread
+    // always sees a bits/palette/data combination that belongs together
+    private volatile Storage storage;
+
+    // Kept in step with every write so emptiness and fullness are O(1) to check
+    private int nonAirCount;
+
+    // Bumped by every setBlock that changes something. The chunk is dirty while
+    // it is ahead of the last saved version; a save that raced with an edit
+    // records the version it copied, so the chunk stays dirty.
+    private volatile int version;
+    private volatile int savedVersion;
 
     public Chunk(int chunkX, int chunkY, int chunkZ, int width, int height, int depth) {
         this.chunkX = chunkX;
@@ -14,7 +33,7 @@ public class Chunk {
         this.height = height;
         this.depth = depth;
 
-        this.blocks = new byte[width * height * depth];
+        this.storage = Storage.single(Block.AIR);
     }
 
     private int getIndex(int x, int y, int z) {
@@ -25,14 +44,33 @@ public class Chunk {
         if (x < 0 || x >= width || y < 0 || y >= height || z < 0 || z >= depth) {
             return Block.AIR;
         }
-        return blocks[getIndex(x, y, z)];
+        return storage.get(getIndex(x, y, z));
     }
 
     public void setBlock(int x, int y, int z, byte blockId) {
         if (x < 0 || x >= width || y < 0 || y >= height || z < 0 || z >= depth) {
             return;
         }
-        blocks[getIndex(x, y, z)] = blockId;
+        Storage current = storage;
+        int index = getIndex(x, y, z);
+        byte previous = current.get(index);
+        if (previous == blockId) {
+            return;
+        }
+        nonAirCount += (blockId != Block.AIR ? 1 : 0) - (previous != Block.AIR ? 1 : 0);
+
+        int paletteIndex = current.indexOf(blockId);
+        if (paletteIndex < 0) {
+            if (current.paletteSize == current.palette.length) {
+                current = current.widen(width * height * depth);
+                storage = current;
+            }
+            paletteIndex = current.add(blockId);
+        }
+        if (current.bits > 0) {
+            current.set(index, paletteIndex);
+        }
+        version++;
     }
 
     public void setBlocks(byte[][][] input) {
@@ -45,7 +83,174 @@ public class Chunk {
         }
     }
 
+    /**
+     * Replaces every block from a dense array in {@link #getBlocks()} order,
+     * choosing the smallest storage that fits the ids present.
+     */
+    public void setBlocks(byte[] input) {
+        int volume = width * height * depth;
+        byte[] palette = new byte[256];
+        int paletteSize = 0;
+        boolean[] seen = new boolean[256];
+        int nonAir = 0;
+        for (int i = 0; i < volume; i++) {
+            if (input[i] != Block.AIR) nonAir++;
+            int id = input[i] & 0xFF;
+            if (!seen[id]) {
+                seen[id] = true;
+                palette[paletteSize++] = input[i];
+            }
+        }
+
+        nonAirCount = nonAir;
+        if (paletteSize == 1) {
+            storage = Storage.single(palette[0]);
+            return;
+        }
+
+        Storage packed = new Storage(Storage.bitsFor(paletteSize), volume);
+        for (int i = 0; i < paletteSize; i++) {
+            packed.add(palette[i]);
+        }
+        for (int i = 0; i < volume; i++) {
+            packed.set(i, packed.indexOf(input[i]));
+        }
+        storage = packed;
+    }
+
+    /**
+     * Expands the blocks into {@code out}, x fastest, then z, then y.
+     */
+    public void getBlocks(byte[] out) {
+        Storage current = storage;
+        int volume = width * height * depth;
+        if (current.bits == 0) {
+            Arrays.fill(out, 0, volume, current.palette[0]);
+            return;
+        }
+        for (int i = 0; i < volume; i++) {
+            out[i] = current.get(i);
+        }
+    }
+
+    /** A dense copy of the blocks, x fastest, then z, then y. */
     public byte[] getBlocks() {
+        byte[] blocks = new byte[width * height * depth];
+        getBlocks(blocks);
         return blocks;
     }
+
+    public int getNonAirCount() {
+        return nonAirCount;
+    }
+
+    /** True if every block is air, so there is nothing to mesh or draw. */
+    public boolean isEmpty() {
+        return nonAirCount == 0;
+    }
+
+    /** True if no block is air, so the chunk hides every face behind it. */
+    public boolean isFull() {
+        return nonAirCount == width * height * depth;
+    }
+
+    /** True if a block has been changed since the chunk was generated, loaded or last saved. */
+    public boolean isDirty() {
+        return version != savedVersion;
+    }
+
+    /** Counts edits; read it before copying the blocks to save and pass it to {@link #markSaved}. */
+    public int getVersion() {
+        return version;
+    }
+
+    public void markSaved(int version) {
+        savedVersion = version;
+    }
+
+    /** Approximate bytes held by the block storage, for memory reporting. */
+    public int getStorageBytes() {
+        Storage current = storage;
+        return current.palette.length + (current.data == null ? 0 : current.data.length * Long.BYTES);
+    }
+
+    private static final class Storage {
+        final int bits;        // 0 for a single-value chunk
+        final int shift;       // log2 of indices per long
+        final byte[] palette;  // sized to 1 << bits so concurrent readers never index past it
+        int paletteSize;
+        final long[] data;
+
+        static Storage single(byte blockId) {
+            Storage storage = new Storage(0, 0);
+            storage.add(blockId);
+            return storage;
+        }
+
+        static int bitsFor(int paletteSize) {
+            if (paletteSize <= 1) return 0;
+            if (paletteSize <= 2) return 1;
+            if (paletteSize <= 4) return 2;
+            if (paletteSize <= 16) return 4;
+            return 8;
+        }
+
+        Storage(int bits, int volume) {
+            this.bits = bits;
+            this.palette = new byte[1 << bits];
+            if (bits == 0) {
+                this.shift = 0;
+                this.data = null;
+            } else {
+                this.shift = Integer.numberOfTrailingZeros(64 / bits);
+                this.data = new long[(volume * bits + 63) / 64];
+            }
+        }
+
+        byte get(int index) {
+            if (bits == 0) {
+                return palette[0];
+            }
+            return palette[paletteIndexAt(index)];
+        }
+
+        int paletteIndexAt(int index) {
+            long word = data[index >>> shift];
+            int offset = (index & ((1 << shift) - 1)) * bits;
+            return (int) (word >>> offset) & ((1 << bits) - 1);
+        }
+
+        void set(int index, int paletteIndex) {
+            int wordIndex = index >>> shift;
+            int offset = (index & ((1 << shift) - 1)) * bits;
+            long mask = ((1L << bits) - 1) << offset;
+            data[wordIndex] = (data[wordIndex] & ~mask) | ((long) paletteIndex << offset);
+        }
+
+        int indexOf(byte blockId) {
+            for (int i = 0; i < paletteSize; i++) {
+                if (palette[i] == blockId) return i;
+            }
+            return -1;
+        }
+
+        int add(byte blockId) {
+            palette[paletteSize] = blockId;
+            return paletteSize++;
+        }
+
+        /** Copy with the next index width up and the same contents. */
+        Storage widen(int volume) {
+            Storage wider = new Storage(bits == 0 ? 1 : bits == 1 ? 2 : bits == 2 ? 4 : 8, volume);
+            System.arraycopy(palette, 0, wider.palette, 0, paletteSize);
+            wider.paletteSize = paletteSize;
+            if (bits > 0) {
+                for (int i = 0; i < volume; i++) {
+                    wider.set(i, paletteIndexAt(i));
+                }
+            }
+            // A single-value chunk widens to all zeros, which is palette entry 0: the old value
+            return wider;
+        }
+    }
 }
@@ -0,0 +1,358 @@
+package org.example;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL31.*;
+import static org.lwjgl.opengl.GL33.*;
+import static org.lwjgl.opengl.GL40.*;
+import static org.lwjgl.opengl.GL43.*;
+
+/**
+ * One vertex buffer shared by every chunk mesh, plus the per-frame draw batch
+ * that renders all of them with a single glMultiDrawElementsIndirect call.
+ * <p>
+ * Meshes get a {@link Slice} of the buffer from a first-fit free list,
+ * measured in vertices. Freed slices are merged with free neighbors straight
+ * away. Merging alone can't undo fragmentation, so when no free range fits a
+ * new slice, the arena is compacted instead: every live slice is copied on
+ * the GPU into a fresh buffer, packed from the start, and the slices are
+ * updated to their new positions. The new buffer is only bigger than the old
+ * one if the live slices need the room. {@link #trim} compacts into a smaller
+ * buffer once most of the arena has been freed, so memory is given back after
+ * the camera moves on.
+ * <p>
+ * Each draw command's base instance indexes a per-draw chunk origin, read as
+ * an instanced attribute, which replaces a per-chunk model matrix uniform.
+ */
+public class ChunkArena {
+    private static final int ORIGIN_LOCATION = 4;
+    private static final int ORIGIN_BYTES = 3 * Float.BYTES;
+    private static final int COMMAND_BYTES = 5 * Integer.BYTES; // count, instanceCount, firstIndex, baseVertex, baseInstance
+
+    private final VertexFormat format;
+    private final int initialCapacity;
+
+    private final int vaoId;
+    private int vboId;
+    private int capacity; // in vertices
+
+    // Free ranges by first vertex -> length; adjacent ranges are always merged
+    private final TreeMap<Integer, Integer> freeSlices = new TreeMap<>();
+    // Live slices by first vertex, in buffer order for compaction
+    private final TreeMap<Integer, Slice> liveSlices = new TreeMap<>();
+    private int usedVertices;
+
+    // Per-frame draw batch, staged off-heap and uploaded with one call each
+    private final int originBufferId;
+    private final int commandBufferId;
+    private ByteBuffer origins;
+    private ByteBuffer commands;
+    private int drawCount;
+    private int maxQuads;
+    private long indexCount;
+
+    public ChunkArena(VertexFormat format, int initialVertexCapacity) {
+        this.format = format;
+        this.initialCapacity = initialVertexCapacity;
+
+        vaoId = glGenVertexArrays();
+        originBufferId = glGenBuffers();
+        commandBufferId = glGenBuffers();
+        origins = MemoryUtil.memAlloc(1024 * ORIGIN_BYTES);
+        commands = MemoryUtil.memAlloc(1024 * COMMAND_BYTES);
+
+        allocateStorage(initialVertexCapacity);
+        freeSlices.put(0, initialVertexCapacity);
+
+        glBindVertexArray(vaoId);
+        glBindBuffer(GL_ARRAY_BUFFER, originBufferId);
+        glVertexAttribPointer(ORIGIN_LOCATION, 3, GL_FLOAT, false, ORIGIN_BYTES, 0);
+        glVertexAttribDivisor(ORIGIN_LOCATION, 1);
+        glEnableVertexAttribArray(ORIGIN_LOCATION);
+        QuadIndexBuffer.bind(0);
+        glBindVertexArray(0);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    public VertexFormat getFormat() {
+        return format;
+    }
+
+    /** Creates the vertex buffer with room for {@code vertices} and points the VAO at it. */
+    private void allocateStorage(int vertices) {
+        vboId = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, vboId);
+        glBufferData(GL_ARRAY_BUFFER, (long) vertices * format.getBytesPerVertex(), GL_DYNAMIC_DRAW);
+        capacity = vertices;
+
+        glBindVertexArray(vaoId);
+        format.setupAttributes();
+        glBindVertexArray(0);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    /**
+     * Reserves {@code vertices} contiguous vertices, compacting or growing the
+     * buffer if no free range is big enough. Either may move other slices.
+     */
+    public Slice allocate(int vertices) {
+        Slice slice = takeFreeRange(vertices);
+        if (slice != null) {
+            return slice;
+        }
+
+        // Repack with room for this slice plus a quarter again, at the current size if that's enough
+        int needed = usedVertices + vertices;
+        int newCapacity = capacity;
+        while (newCapacity < needed + needed / 4) {
+            newCapacity *= 2;
+        }
+        relocate(newCapacity);
+        return takeFreeRange(vertices);
+    }
+
+    private Slice takeFreeRange(int vertices) {
+        for (Map.Entry<Integer, Integer> entry : freeSlices.entrySet()) {
+            int start = entry.getKey();
+            int length = entry.getValue();
+            if (length >= vertices) {
+                freeSlices.remove(start);
+                if (length > vertices) {
+                    freeSlices.put(start + vertices, length - vertices);
+                }
+                usedVertices += vertices;
+                Slice slice = new Slice(start, vertices);
+                liveSlices.put(start, slice);
+                return slice;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Grows the slice to {@code newVertices} in place, if the free space right
+     * after it is big enough.
+     *
+     * @return false if the slice couldn't grow and was left as it was
+     */
+    public boolean extend(Slice slice, int newVertices) {
+        int end = slice.start + slice.length;
+        Integer freeLength = freeSlices.get(end);
+        int extra = newVertices - slice.length;
+        if (freeLength == null || freeLength < extra) {
+            return false;
+        }
+        freeSlices.remove(end);
+        if (freeLength > extra) {
+            freeSlices.put(end + extra, freeLength - extra);
+        }
+        usedVertices += extra;
+        slice.length = newVertices;
+        return true;
+    }
+
+    public void free(Slice slice) {
+        liveSlices.remove(slice.start);
+        usedVertices -= slice.length;
+        addFreeSlice(slice.start, slice.length);
+    }
+
+    private void addFreeSlice(int start, int vertices) {
+        // Merge with the free slices on either side
+        Map.Entry<Integer, Integer> before = freeSlices.floorEntry(start);
+        if (before != null && before.getKey() + before.getValue() == start) {
+            start = before.getKey();
+            vertices += before.getValue();
+            freeSlices.remove(before.getKey());
+        }
+        Integer afterLength = freeSlices.remove(start + vertices);
+        if (afterLength != null) {
+            vertices += afterLength;
+        }
+        freeSlices.put(start, vertices);
+    }
+
+    /**
+     * Shrinks the buffer if under a quarter of it is in use, compacting the
+     * live slices into a buffer half as full. Call after unloading chunks,
+     * outside a draw batch; it may move any slice.
+     */
+    public void trim() {
+        if (capacity <= initialCapacity || usedVertices >= capacity / 4) return;
+
+        int newCapacity = capacity;
+        while (newCapacity / 2 >= initialCapacity && newCapacity / 2 >= usedVertices * 2) {
+            newCapacity /= 2;
+        }
+        relocate(newCapacity);
+    }
+
+    /**
+     * Copies every live slice, in buffer order, to the start of a new buffer of
+     * {@code newCapacity} vertices and points the slices at their new positions.
+     * Slices that were already adjacent are copied with one call.
+     */
+    private void relocate(int newCapacity) {
+        int oldVboId = vboId;
+        int bytesPerVertex = format.getBytesPerVertex();
+
+        allocateStorage(newCapacity);
+        glBindBuffer(GL_COPY_READ_BUFFER, oldVboId);
+        glBindBuffer(GL_COPY_WRITE_BUFFER, vboId);
+
+        List<Slice> slices = new ArrayList<>(liveSlices.values());
+        liveSlices.clear();
+        int next = 0;
+        int runSource = -1;
+        int runTarget = 0;
+        int runLength = 0;
+        for (Slice slice : slices) {
+            if (runLength > 0 && runSource + runLength != slice.start) {
+                glCopyBufferSubData(GL_COPY_READ_BUFFER, GL_COPY_WRITE_BUFFER,
+                        (long) runSource * bytesPerVertex, (long) runTarget * bytesPerVertex, (long) runLength * bytesPerVertex);
+                runLength = 0;
+            }
+            if (runLength == 0) {
+                runSource = slice.start;
+                runTarget = next;
+            }
+            runLength += slice.length;
+
+            slice.start = next;
+            liveSlices.put(next, slice);
+            next += slice.length;
+        }
+        if (runLength > 0) {
+            glCopyBufferSubData(GL_COPY_READ_BUFFER, GL_COPY_WRITE_BUFFER,
+                    (long) runSource * bytesPerVertex, (long) runTarget * bytesPerVertex, (long) runLength * bytesPerVertex);
+        }
+
+        glBindBuffer(GL_COPY_READ_BUFFER, 0);
+        glBindBuffer(GL_COPY_WRITE_BUFFER, 0);
+        glDeleteBuffers(oldVboId);
+
+        freeSlices.clear();
+        if (next < newCapacity) {
+            freeSlices.put(next, newCapacity - next);
+        }
+    }
+
+    /** Copies the builder's vertices to the start of the slice. */
+    public void upload(Slice slice, VertexBuilder builder) {
+        glBindBuffer(GL_ARRAY_BUFFER, vboId);
+        nglBufferSubData(GL_ARRAY_BUFFER, (long) slice.start * format.getBytesPerVertex(), builder.getSizeInBytes(), builder.getAddress());
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getUsedVertices() {
+        return usedVertices;
+    }
+
+    /** Starts recording a new frame's draws. */
+    public void beginBatch() {
+        drawCount = 0;
+        maxQuads = 0;
+        indexCount = 0;
+    }
+
+    /** Queues a mesh level that has geometry, drawn with its chunk's origin at (x, y, z). */
+    public void addDraw(ChunkMesh mesh, int level, float x, float y, float z) {
+        if ((drawCount + 1) * COMMAND_BYTES > commands.capacity()) {
+            commands = MemoryUtil.memRealloc(commands, commands.capacity() * 2);
+            origins = MemoryUtil.memRealloc(origins, origins.capacity() * 2);
+        }
+
+        int originOffset = drawCount * ORIGIN_BYTES;
+        origins.putFloat(originOffset, x);
+        origins.putFloat(originOffset + 4, y);
+        origins.putFloat(originOffset + 8, z);
+
+        int commandOffset = drawCount * COMMAND_BYTES;
+        int meshIndices = mesh.getIndexCount(level);
+        commands.putInt(commandOffset, meshIndices);
+        commands.putInt(commandOffset + 4, 1);                     // instanceCount
+        commands.putInt(commandOffset + 8, 0);                     // firstIndex: every quad list starts at 0
+        commands.putInt(commandOffset + 12, mesh.getFirstVertex(level)); // baseVertex
+        commands.putInt(commandOffset + 16, drawCount);            // baseInstance selects the origin
+        maxQuads = Math.max(maxQuads, meshIndices / QuadIndexBuffer.INDICES_PER_QUAD);
+        indexCount += meshIndices;
+        drawCount++;
+    }
+
+    /** Issues every queued draw in one call. */
+    public void drawBatch() {
+        if (drawCount == 0) return;
+
+        glBindVertexArray(vaoId);
+        QuadIndexBuffer.bind(maxQuads);
+
+        glBindBuffer(GL_ARRAY_BUFFER, originBufferId);
+        nglBufferData(GL_ARRAY_BUFFER, (long) drawCount * ORIGIN_BYTES, MemoryUtil.memAddress(origins), GL_STREAM_DRAW);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+
+        glBindBuffer(GL_DRAW_INDIRECT_BUFFER, commandBufferId);
+        nglBufferData(GL_DRAW_INDIRECT_BUFFER, (long) drawCount * COMMAND_BYTES, MemoryUtil.memAddress(commands), GL_STREAM_DRAW);
+        glMultiDrawElementsIndirect(GL_TRIANGLES, QuadIndexBuffer.INDEX_TYPE, 0, drawCount, 0);
+        glBindBuffer(GL_DRAW_INDIRECT_BUFFER, 0);
+
+        glBindVertexArray(0);
+    }
+
+    public int getDrawCount() {
+        return drawCount;
+    }
+
+    /** Triangles in the current batch. */
+    public long getTriangleCount() {
+        return indexCount / 3;
+    }
+
+    /** Number of separate free ranges; more than a handful means the arena is fragmented. */
+    public int getFreeRangeCount() {
+        return freeSlices.size();
+    }
+
+    public void cleanup() {
+        glDeleteBuffers(vboId);
+        glDeleteBuffers(originBufferId);
+        glDeleteBuffers(commandBufferId);
+        glDeleteVertexArrays(vaoId);
+        MemoryUtil.memFree(origins);
+        MemoryUtil.memFree(commands);
+    }
+
+    /**
+     * A range of the arena's vertices owned by one mesh level. The arena moves
+     * it when compacting, so read {@link #getStart} when recording each draw.
+     */
+    public static final class Slice {
+        private int start;
+        private int length;
+
+        private Slice(int start, int length) {
+            this.start = start;
+            this.length = length;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getLength() {
+            return length;
+        }
+    }
+}
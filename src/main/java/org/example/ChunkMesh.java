@@ -1,197 +1,207 @@
 package org.example;
 
-import org.lwjgl.system.MemoryUtil;
-
-import java.nio.FloatBuffer;
-import java.util.ArrayList;
-import java.util.List;
-
-import static org.lwjgl.opengl.GL15.*;
-import static org.lwjgl.opengl.GL20.*;
-import static org.lwjgl.opengl.GL30.*;
-
+/**
+ * A chunk's slices of the shared {@link ChunkArena}, one per level of detail.
+ * Level {@code n} merges {@code 2^n} blocks per axis into one cell, so far
+ * chunks can be drawn with a fraction of the triangles. Levels are built on
+ * demand (see {@link ChunkMeshPipeline#request}) and kept until the chunk
+ * changes or unloads, so moving back and forth doesn't remesh anything. The
+ * vertices are built elsewhere and handed to {@link #upload} on the render
+ * thread; drawing happens in the arena's batch.
+ */
 public class ChunkMesh {
-    private static final float BLOCK_SIZE = 1.0f;
-    private static final int ATLAS_SIZE = 16;       // Number of textures per row/column in atlas
-    private static final float UV_SIZE = 1.0f / ATLAS_SIZE;
-
-    private final Chunk chunk;
+    /** 1, 2, 4 and 8 blocks per cell. */
+    public static final int LOD_LEVELS = 4;
 
-    private int vaoId;
-    private int vboId;
-    private int vertexCount;
+    // Slices are allocated in multiples of this many vertices (64 quads)
+    private static final int SLICE_GRANULARITY = 256;
 
-    public ChunkMesh(Chunk chunk) {
+    private final Chunk chunk;
+    private final ChunkArena arena;
+    private final Level[] levels = new Level[LOD_LEVELS];
+
+    // Bumped whenever the chunk's blocks change and when the mesh is dropped, so
+    // results meshed from older blocks can be told apart and discarded
+    private int revision;
+    // Level the renderer last asked for; edits remesh this one straight away
+    private int requestedLevel;
+    // Waiting in ChunkMeshPipeline's dirty list for the next frame's remesh
+    private boolean dirty;
+    // Last occlusion query result and the frame it was issued in; see OcclusionCuller
+    private boolean occluded;
+    private int occlusionTestFrame;
+
+    public ChunkMesh(Chunk chunk, ChunkArena arena) {
         this.chunk = chunk;
-        generateMesh();
+        this.arena = arena;
+        for (int i = 0; i < LOD_LEVELS; i++) {
+            levels[i] = new Level();
+        }
     }
 
     public Chunk getChunk() {
         return chunk;
     }
 
-    private void generateMesh() {
-        List<Float> vertices = new ArrayList<>();
+    public int getVertexCount(int level) {
+        return levels[level].vertexCount;
+    }
 
-        for (int y = 0; y < chunk.height; y++) {
-            for (int z = 0; z < chunk.depth; z++) {
-                for (int x = 0; x < chunk.width; x++) {
-                    byte block = chunk.getBlock(x, y, z);
-                    if (block == Block.AIR) continue;
+    public int getIndexCount(int level) {
+        return levels[level].indexCount;
+    }
 
-                    // Add faces only if neighbor block is air (or out of bounds)
-                    if (isBlockAirSafe(x, y, z + 1)) addFace(vertices, x, y, z, Face.FRONT, block);
-                    if (isBlockAirSafe(x, y, z - 1)) addFace(vertices, x, y, z, Face.BACK, block);
-                    if (isBlockAirSafe(x - 1, y, z)) addFace(vertices, x, y, z, Face.LEFT, block);
-                    if (isBlockAirSafe(x + 1, y, z)) addFace(vertices, x, y, z, Face.RIGHT, block);
-                    if (isBlockAirSafe(x, y + 1, z)) addFace(vertices, x, y, z, Face.TOP, block);
-                    if (isBlockAirSafe(x, y - 1, z)) addFace(vertices, x, y, z, Face.BOTTOM, block);
-                }
-            }
-        }
+    /** Where the level's vertices start in the arena, or -1 if it holds none. May change when the arena compacts. */
+    public int getFirstVertex(int level) {
+        ChunkArena.Slice slice = levels[level].slice;
+        return slice == null ? -1 : slice.getStart();
+    }
+
+    /** False for levels that mesh to nothing; those hold no arena space and need not be drawn. */
+    public boolean hasGeometry(int level) {
+        return levels[level].indexCount > 0;
+    }
+
+    /** True once the level has been meshed, even if the chunk has changed since. */
+    public boolean isBuilt(int level) {
+        return levels[level].builtRevision >= 0;
+    }
 
-        float[] vertexArray = new float[vertices.size()];
-        for (int i = 0; i < vertices.size(); i++) {
-            vertexArray[i] = vertices.get(i);
+    /**
+     * The level to draw when {@code level} is wanted: that level if it has been
+     * built, otherwise the nearest one that has, or -1 if none has. Every level
+     * covers all of the chunk's solid blocks, so any of them can stand in while
+     * the wanted one is being meshed.
+     */
+    public int getDrawLevel(int level) {
+        if (isBuilt(level)) return level;
+        for (int d = 1; d < LOD_LEVELS; d++) {
+            if (level - d >= 0 && isBuilt(level - d)) return level - d;
+            if (level + d < LOD_LEVELS && isBuilt(level + d)) return level + d;
         }
+        return -1;
+    }
+
+    int getRevision() {
+        return revision;
+    }
+
+    /** Marks every level as meshed from old blocks. Their geometry stays drawable until replaced. */
+    void invalidate() {
+        revision++;
+    }
+
+    /** True if the level is neither up to date nor already being meshed. */
+    boolean needsBuild(int level) {
+        Level l = levels[level];
+        return l.builtRevision != revision && l.pendingRevision != revision;
+    }
+
+    /** @return the revision the job being started meshes */
+    int beginBuild(int level) {
+        levels[level].pendingRevision = revision;
+        return revision;
+    }
 
-        vertexCount = vertexArray.length / 8;  // 8 floats per vertex (pos(3), normal(3), uv(2))
+    int getRequestedLevel() {
+        return requestedLevel;
+    }
 
-        // Create VAO and VBO
-        vaoId = glGenVertexArrays();
-        glBindVertexArray(vaoId);
+    void setRequestedLevel(int level) {
+        requestedLevel = level;
+    }
 
-        vboId = glGenBuffers();
-        glBindBuffer(GL_ARRAY_BUFFER, vboId);
+    /** @return true if the mesh wasn't dirty already */
+    boolean markDirty() {
+        if (dirty) return false;
+        dirty = true;
+        return true;
+    }
+
+    /** @return true if the mesh was dirty */
+    boolean clearDirty() {
+        boolean wasDirty = dirty;
+        dirty = false;
+        return wasDirty;
+    }
 
-        // Upload vertex data to GPU
-        FloatBuffer vertexBuffer = MemoryUtil.memAllocFloat(vertexArray.length);
-        vertexBuffer.put(vertexArray).flip();
-        glBufferData(GL_ARRAY_BUFFER, vertexBuffer, GL_STATIC_DRAW);
-        MemoryUtil.memFree(vertexBuffer);
+    boolean isOccluded() {
+        return occluded;
+    }
 
-        int stride = 8 * Float.BYTES;
+    void setOccluded(boolean occluded) {
+        this.occluded = occluded;
+    }
 
-        // Position attribute (location 0): 3 floats, offset 0
-        glVertexAttribPointer(0, 3, GL_FLOAT, false, stride, 0);
-        glEnableVertexAttribArray(0);
+    int getOcclusionTestFrame() {
+        return occlusionTestFrame;
+    }
 
-        // Normal attribute (location 2): 3 floats, offset 3 floats
-        glVertexAttribPointer(2, 3, GL_FLOAT, false, stride, 3 * Float.BYTES);
-        glEnableVertexAttribArray(2);
+    void setOcclusionTestFrame(int frame) {
+        occlusionTestFrame = frame;
+    }
 
-        // Texture coordinates attribute (location 1): 2 floats, offset 6 floats
-        glVertexAttribPointer(1, 2, GL_FLOAT, false, stride, 6 * Float.BYTES);
-        glEnableVertexAttribArray(1);
+    /**
+     * Replaces the level's geometry with the builder's vertices, meshed from
+     * {@code revision}. They are written over the old ones when the slice is
+     * big enough or can grow into the free space after it, so remeshing after
+     * an edit rarely moves the mesh.
+     */
+    void upload(int level, int revision, VertexBuilder builder) {
+        Level l = levels[level];
+        l.builtRevision = revision;
+        l.vertexCount = builder.getVertexCount();
+        int quadCount = l.vertexCount / QuadIndexBuffer.VERTICES_PER_QUAD;
+        l.indexCount = quadCount * QuadIndexBuffer.INDICES_PER_QUAD;
+        if (l.indexCount == 0) {
+            releaseSlice(l);
+            return;
+        }
 
-        // Unbind
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
-        glBindVertexArray(0);
+        if (l.slice == null || l.vertexCount > l.slice.getLength()) {
+            // Rounded up, so a few added faces fit without touching the allocator again
+            int size = (l.vertexCount + SLICE_GRANULARITY - 1) / SLICE_GRANULARITY * SLICE_GRANULARITY;
+            if (l.slice == null || !arena.extend(l.slice, size)) {
+                releaseSlice(l);
+                l.slice = arena.allocate(size);
+            }
+        }
+        arena.upload(l.slice, builder);
+    }
 
-        System.out.printf("Generated mesh with %d vertices for chunk at (%d, %d, %d)%n",
-                vertexCount, chunk.chunkX, chunk.chunkY, chunk.chunkZ);
+    /** Drops the level's geometry because the chunk, as of {@code revision}, meshes to nothing. */
+    void clear(int level, int revision) {
+        Level l = levels[level];
+        l.builtRevision = revision;
+        l.vertexCount = 0;
+        l.indexCount = 0;
+        releaseSlice(l);
     }
 
-    private boolean isBlockAirSafe(int x, int y, int z) {
-        if (x < 0 || x >= chunk.width || y < 0 || y >= chunk.height || z < 0 || z >= chunk.depth) {
-            // Outside bounds considered air to show faces
-            return true;
+    public void cleanup() {
+        // Anything still being meshed for this chunk must not be uploaded after it is gone
+        revision++;
+        dirty = false;
+        for (Level l : levels) {
+            l.builtRevision = -1;
+            l.vertexCount = 0;
+            l.indexCount = 0;
+            releaseSlice(l);
         }
-        return chunk.getBlock(x, y, z) == Block.AIR;
-    }
-
-    private void addFace(List<Float> vertices, int x, int y, int z, Face face, byte blockId) {
-        float px = x * BLOCK_SIZE;
-        float py = y * BLOCK_SIZE;
-        float pz = z * BLOCK_SIZE;
-
-        int texX = blockId % ATLAS_SIZE;
-        int texY = blockId / ATLAS_SIZE;
-
-        float uMin = texX * UV_SIZE;
-        float vMin = texY * UV_SIZE;
-        float uMax = uMin + UV_SIZE;
-        float vMax = vMin + UV_SIZE;
-
-        switch (face) {
-            case FRONT -> addQuad(vertices,
-                    px - 0.5f, py - 0.5f, pz + 0.5f,
-                    px + 0.5f, py - 0.5f, pz + 0.5f,
-                    px + 0.5f, py + 0.5f, pz + 0.5f,
-                    px - 0.5f, py + 0.5f, pz + 0.5f,
-                    0, 0, 1, uMin, vMax, uMax, vMin);
-            case BACK -> addQuad(vertices,
-                    px + 0.5f, py - 0.5f, pz - 0.5f,
-                    px - 0.5f, py - 0.5f, pz - 0.5f,
-                    px - 0.5f, py + 0.5f, pz - 0.5f,
-                    px + 0.5f, py + 0.5f, pz - 0.5f,
-                    0, 0, -1, uMin, vMax, uMax, vMin);
-            case LEFT -> addQuad(vertices,
-                    px - 0.5f, py - 0.5f, pz - 0.5f,
-                    px - 0.5f, py - 0.5f, pz + 0.5f,
-                    px - 0.5f, py + 0.5f, pz + 0.5f,
-                    px - 0.5f, py + 0.5f, pz - 0.5f,
-                    -1, 0, 0, uMin, vMax, uMax, vMin);
-            case RIGHT -> addQuad(vertices,
-                    px + 0.5f, py - 0.5f, pz + 0.5f,
-                    px + 0.5f, py - 0.5f, pz - 0.5f,
-                    px + 0.5f, py + 0.5f, pz - 0.5f,
-                    px + 0.5f, py + 0.5f, pz + 0.5f,
-                    1, 0, 0, uMin, vMax, uMax, vMin);
-            case TOP -> addQuad(vertices,
-                    px - 0.5f, py + 0.5f, pz + 0.5f,
-                    px + 0.5f, py + 0.5f, pz + 0.5f,
-                    px + 0.5f, py + 0.5f, pz - 0.5f,
-                    px - 0.5f, py + 0.5f, pz - 0.5f,
-                    0, 1, 0, uMin, vMax, uMax, vMin);
-            case BOTTOM -> addQuad(vertices,
-                    px - 0.5f, py - 0.5f, pz - 0.5f,
-                    px + 0.5f, py - 0.5f, pz - 0.5f,
-                    px + 0.5f, py - 0.5f, pz + 0.5f,
-                    px - 0.5f, py - 0.5f, pz + 0.5f,
-                    0, -1, 0, uMin, vMax, uMax, vMin);
+    }
+
+    private void releaseSlice(Level l) {
+        if (l.slice != null) {
+            arena.free(l.slice);
+            l.slice = null;
         }
     }
 
-    private void addQuad(List<Float> vertices,
-                         float x0, float y0, float z0,
-                         float x1, float y1, float z1,
-                         float x2, float y2, float z2,
-                         float x3, float y3, float z3,
-                         float nx, float ny, float nz,
-                         float uMin, float vMax, float uMax, float vMin) {
-        // Triangle 1
-        addVertex(vertices, x0, y0, z0, nx, ny, nz, uMin, vMax);
-        addVertex(vertices, x1, y1, z1, nx, ny, nz, uMax, vMax);
-        addVertex(vertices, x2, y2, z2, nx, ny, nz, uMax, vMin);
-
-        // Triangle 2
-        addVertex(vertices, x2, y2, z2, nx, ny, nz, uMax, vMin);
-        addVertex(vertices, x3, y3, z3, nx, ny, nz, uMin, vMin);
-        addVertex(vertices, x0, y0, z0, nx, ny, nz, uMin, vMax);
-    }
-
-    private void addVertex(List<Float> vertices,
-                           float x, float y, float z,
-                           float nx, float ny, float nz,
-                           float u, float v) {
-        vertices.add(x);
-        vertices.add(y);
-        vertices.add(z);
-        vertices.add(nx);
-        vertices.add(ny);
-        vertices.add(nz);
-        vertices.add(u);
-        vertices.add(v);
-    }
-
-    public void render() {
-        glBindVertexArray(vaoId);
-        glDrawArrays(GL_TRIANGLES, 0, vertexCount);
-        glBindVertexArray(0);
-    }
-
-    private enum Face {
-        FRONT, BACK, LEFT, RIGHT, TOP, BOTTOM
+    private static final class Level {
+        ChunkArena.Slice slice; // null while the level holds no vertices
+        int vertexCount;
+        int indexCount;
+        int builtRevision = -1;   // revision the geometry was meshed from, -1 if never built
+        int pendingRevision = -1; // revision of the job in flight, if any
     }
 }
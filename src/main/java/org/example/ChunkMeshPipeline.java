@@ -0,0 +1,194 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Two-stage chunk meshing. {@link #submit} queues a chunk's level of detail
+ * for the CPU stage, which captures its neighborhood, downsamples it for
+ * coarse levels and builds vertices on a worker thread.
+ * The render thread then calls {@link #uploadCompleted} once per frame to
+ * push finished meshes to the GPU within a time budget, so adding chunks
+ * never stalls a frame on meshing.
+ */
+public class ChunkMeshPipeline {
+    private final World world;
+    private final ChunkMesher.Mode mode;
+    private final VertexFormat format;
+
+    private final ExecutorService workers;
+    private final ThreadLocal<ChunkSnapshot> snapshots = ThreadLocal.withInitial(ChunkSnapshot::new);
+    private final ThreadLocal<ChunkSnapshot> lodSnapshots = ThreadLocal.withInitial(ChunkSnapshot::new);
+    private final ConcurrentLinkedQueue<Result> completed = new ConcurrentLinkedQueue<>();
+    // Builders travel worker -> render thread -> back here, so their memory is reused
+    private final ConcurrentLinkedQueue<VertexBuilder> freeBuilders = new ConcurrentLinkedQueue<>();
+    // Meshes whose chunk changed this frame; render thread only
+    private final List<ChunkMesh> dirtyMeshes = new ArrayList<>();
+
+    public ChunkMeshPipeline(World world, ChunkMesher.Mode mode, VertexFormat format) {
+        this.world = world;
+        this.mode = mode;
+        this.format = format;
+
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        AtomicInteger threadId = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "chunk-mesher-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Meshes the level of detail unless it is up to date or already being
+     * meshed, and remembers it as the level edits should remesh. Render thread
+     * only; call it every frame with the level the chunk should be drawn at.
+     */
+    public void request(ChunkMesh mesh, int level) {
+        mesh.setRequestedLevel(level);
+        if (mesh.needsBuild(level)) {
+            submit(mesh, level);
+        }
+    }
+
+    /**
+     * Schedules the level of detail of the mesh's chunk to be meshed again.
+     * Must be called on the render thread; a job still in flight for blocks that
+     * have since changed is discarded on arrival.
+     */
+    public void submit(ChunkMesh mesh, int level) {
+        int revision = mesh.beginBuild(level);
+        if (mesh.getChunk().isEmpty()) {
+            // All-air chunks never reach a worker or the GPU
+            mesh.clear(level, revision);
+            return;
+        }
+
+        workers.execute(() -> {
+            VertexBuilder builder = freeBuilders.poll();
+            if (builder == null) {
+                builder = new VertexBuilder(format, 4096);
+            } else {
+                builder.reset(format);
+            }
+
+            // A chunk boxed in by six full chunks has no face anyone outside it can see
+            Chunk chunk = mesh.getChunk();
+            if (!isEnclosed(chunk)) {
+                ChunkSnapshot snapshot = snapshots.get();
+                snapshot.capture(world, chunk);
+                if (level > 0) {
+                    ChunkSnapshot lod = lodSnapshots.get();
+                    lod.downsample(snapshot, 1 << level);
+                    snapshot = lod;
+                }
+                ChunkMesher.generate(snapshot, builder, mode);
+            }
+            completed.add(new Result(mesh, level, revision, builder));
+        });
+    }
+
+    /**
+     * Marks the mesh's chunk as changed. However many times a mesh is marked
+     * in a frame, {@link #submitDirty} meshes it once. Render thread only.
+     */
+    public void markDirty(ChunkMesh mesh) {
+        if (mesh.markDirty()) {
+            dirtyMeshes.add(mesh);
+        }
+    }
+
+    /**
+     * Remeshes every mesh marked dirty since the last call at its requested
+     * level; its other cached levels are rebuilt when next requested. Render
+     * thread only, once per frame.
+     */
+    public void submitDirty() {
+        for (int i = 0; i < dirtyMeshes.size(); i++) {
+            ChunkMesh mesh = dirtyMeshes.get(i);
+            // Meshes unloaded since they were marked are no longer dirty
+            if (mesh.clearDirty()) {
+                mesh.invalidate();
+                submit(mesh, mesh.getRequestedLevel());
+            }
+        }
+        dirtyMeshes.clear();
+    }
+
+    private boolean isEnclosed(Chunk chunk) {
+        return isFull(chunk.chunkX - 1, chunk.chunkY, chunk.chunkZ)
+                && isFull(chunk.chunkX + 1, chunk.chunkY, chunk.chunkZ)
+                && isFull(chunk.chunkX, chunk.chunkY - 1, chunk.chunkZ)
+                && isFull(chunk.chunkX, chunk.chunkY + 1, chunk.chunkZ)
+                && isFull(chunk.chunkX, chunk.chunkY, chunk.chunkZ - 1)
+                && isFull(chunk.chunkX, chunk.chunkY, chunk.chunkZ + 1);
+    }
+
+    private boolean isFull(int chunkX, int chunkY, int chunkZ) {
+        Chunk chunk = world.getChunk(chunkX, chunkY, chunkZ);
+        return chunk != null && chunk.isFull();
+    }
+
+    /**
+     * Uploads finished meshes until the queue is empty or {@code budgetNanos} has
+     * passed. At least one mesh is uploaded per call so the queue always drains.
+     * Render thread only.
+     *
+     * @return number of meshes uploaded
+     */
+    public int uploadCompleted(long budgetNanos) {
+        long deadline = System.nanoTime() + budgetNanos;
+        int uploaded = 0;
+
+        Result result;
+        while ((result = completed.poll()) != null) {
+            if (result.revision == result.mesh.getRevision()) {
+                result.mesh.upload(result.level, result.revision, result.builder);
+                uploaded++;
+            }
+            freeBuilders.add(result.builder);
+
+            if (System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+        return uploaded;
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+        try {
+            workers.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        Result result;
+        while ((result = completed.poll()) != null) {
+            result.builder.free();
+        }
+        VertexBuilder builder;
+        while ((builder = freeBuilders.poll()) != null) {
+            builder.free();
+        }
+    }
+
+    private static final class Result {
+        final ChunkMesh mesh;
+        final int level;
+        final int revision;
+        final VertexBuilder builder;
+
+        Result(ChunkMesh mesh, int level, int revision, VertexBuilder builder) {
+            this.mesh = mesh;
+            this.level = level;
+            this.revision = revision;
+            this.builder = builder;
+        }
+    }
+}
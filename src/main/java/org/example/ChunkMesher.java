@@ -0,0 +1,200 @@
+package org.example;
+
+/**
+ * Builds chunk geometry on the CPU. Nothing here touches OpenGL, so meshing
+ * can be benchmarked and run without a context.
+ */
+public class ChunkMesher {
+    private static final float BLOCK_SIZE = 1.0f;
+
+    public enum Mode {
+        /** One quad per exposed block face. */
+        NAIVE,
+        /** Coplanar neighbouring faces of the same block merged into larger quads. */
+        GREEDY
+    }
+
+    private ChunkMesher() {
+    }
+
+    /**
+     * Meshes the captured chunk. Faces against solid blocks in the snapshot's
+     * neighbor padding are culled like interior faces. Cells of a downsampled
+     * snapshot come out as blocks {@link ChunkSnapshot#getScale} blocks wide.
+     */
+    public static void generate(ChunkSnapshot chunk, VertexBuilder out, Mode mode) {
+        if (mode == Mode.GREEDY) {
+            generateGreedy(chunk, out);
+        } else {
+            generateNaive(chunk, out);
+        }
+    }
+
+    private static void generateNaive(ChunkSnapshot chunk, VertexBuilder out) {
+        for (int y = 0; y < chunk.getHeight(); y++) {
+            for (int z = 0; z < chunk.getDepth(); z++) {
+                for (int x = 0; x < chunk.getWidth(); x++) {
+                    byte block = chunk.getBlock(x, y, z);
+                    if (block == Block.AIR) continue;
+
+                    // Add faces only if neighbor block is air (or a missing neighbor chunk)
+                    for (Face face : Face.VALUES) {
+                        if (isBlockAirSafe(chunk, x + face.nx, y + face.ny, z + face.nz)) {
+                            addQuad(out, face, x, y, z, 1, 1, chunk.getScale(), block);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void generateGreedy(ChunkSnapshot chunk, VertexBuilder out) {
+        int[] dims = {chunk.getWidth(), chunk.getHeight(), chunk.getDepth()};
+        int[] pos = new int[3];
+        int maxDim = Math.max(dims[0], Math.max(dims[1], dims[2]));
+        byte[] mask = new byte[maxDim * maxDim];
+
+        for (Face face : Face.VALUES) {
+            int n = face.normalAxis;
+            int a1 = face.axis1;
+            int a2 = face.axis2;
+            int size1 = dims[a1];
+            int size2 = dims[a2];
+
+            for (int slice = 0; slice < dims[n]; slice++) {
+                // Mark every visible face in this slice with its block id
+                pos[n] = slice;
+                for (int j = 0; j < size2; j++) {
+                    pos[a2] = j;
+                    for (int i = 0; i < size1; i++) {
+                        pos[a1] = i;
+                        byte block = chunk.getBlock(pos[0], pos[1], pos[2]);
+                        boolean visible = block != Block.AIR
+                                && isBlockAirSafe(chunk, pos[0] + face.nx, pos[1] + face.ny, pos[2] + face.nz);
+                        mask[i + j * size1] = visible ? block : Block.AIR;
+                    }
+                }
+
+                // Grow each unclaimed face into the widest, then tallest, rectangle of matching ids
+                for (int j = 0; j < size2; j++) {
+                    for (int i = 0; i < size1; ) {
+                        byte block = mask[i + j * size1];
+                        if (block == Block.AIR) {
+                            i++;
+                            continue;
+                        }
+
+                        int w = 1;
+                        while (i + w < size1 && mask[i + w + j * size1] == block) {
+                            w++;
+                        }
+
+                        int h = 1;
+                        grow:
+                        while (j + h < size2) {
+                            for (int k = 0; k < w; k++) {
+                                if (mask[i + k + (j + h) * size1] != block) {
+                                    break grow;
+                                }
+                            }
+                            h++;
+                        }
+
+                        for (int dj = 0; dj < h; dj++) {
+                            for (int k = 0; k < w; k++) {
+                                mask[i + k + (j + dj) * size1] = Block.AIR;
+                            }
+                        }
+
+                        pos[a1] = i;
+                        pos[a2] = j;
+                        addQuad(out, face, pos[0], pos[1], pos[2], w, h, chunk.getScale(), block);
+                        i += w;
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isBlockAirSafe(ChunkSnapshot chunk, int x, int y, int z) {
+        // One block past the chunk edge reads from the neighbor padding
+        return chunk.getBlock(x, y, z) == Block.AIR;
+    }
+
+    /**
+     * Emits a quad covering {@code w x h} faces of {@code scale}-block cells whose lowest
+     * cell is at (x, y, z). {@code w} runs along the face's first edge axis and {@code h}
+     * along its second. UVs are in block units; the texture array wraps, so the block
+     * texture repeats across the quad.
+     */
+    private static void addQuad(VertexBuilder out, Face face, int x, int y, int z, int w, int h, int scale, byte blockId) {
+        // Move the origin onto the face plane and to the corner the edges start from
+        float x0 = x * scale * BLOCK_SIZE + cornerOffset(face, 0, w, h, scale);
+        float y0 = y * scale * BLOCK_SIZE + cornerOffset(face, 1, w, h, scale);
+        float z0 = z * scale * BLOCK_SIZE + cornerOffset(face, 2, w, h, scale);
+
+        int u = w * scale;
+        int v = h * scale;
+        float e1 = face.sign1 * u * BLOCK_SIZE;
+        float e2 = face.sign2 * v * BLOCK_SIZE;
+        float e1x = face.axis1 == 0 ? e1 : 0, e1y = face.axis1 == 1 ? e1 : 0, e1z = face.axis1 == 2 ? e1 : 0;
+        float e2x = face.axis2 == 0 ? e2 : 0, e2y = face.axis2 == 1 ? e2 : 0, e2z = face.axis2 == 2 ? e2 : 0;
+
+        float x1 = x0 + e1x, y1 = y0 + e1y, z1 = z0 + e1z;
+        float x2 = x1 + e2x, y2 = y1 + e2y, z2 = z1 + e2z;
+        float x3 = x0 + e2x, y3 = y0 + e2y, z3 = z0 + e2z;
+
+        float nx = face.nx, ny = face.ny, nz = face.nz;
+        float layer = Block.getTextureLayer(blockId);
+
+        // Four unique corners; QuadIndexBuffer turns them into triangles (0, 1, 2) and (2, 3, 0)
+        out.vertex(x0, y0, z0, nx, ny, nz, 0, v, layer);
+        out.vertex(x1, y1, z1, nx, ny, nz, u, v, layer);
+        out.vertex(x2, y2, z2, nx, ny, nz, u, 0, layer);
+        out.vertex(x3, y3, z3, nx, ny, nz, 0, 0, layer);
+    }
+
+    private static float cornerOffset(Face face, int axis, int w, int h, int scale) {
+        // Block centers sit on integer coordinates, so a cell spans -0.5 to scale - 0.5 from its lowest block
+        if (axis == face.normalAxis) {
+            return face.normalSign > 0 ? scale - 0.5f : -0.5f;
+        }
+        if (axis == face.axis1) {
+            return face.sign1 > 0 ? -0.5f : w * scale - 0.5f;
+        }
+        return face.sign2 > 0 ? -0.5f : h * scale - 0.5f;
+    }
+
+    /**
+     * A block face direction. Each face's quad starts at one corner and spans its
+     * first edge along {@code axis1} and its second edge along {@code axis2}
+     * (0 = x, 1 = y, 2 = z), in the given directions.
+     */
+    private enum Face {
+        FRONT(0, 0, 1, 0, 1, 1, 1),
+        BACK(0, 0, -1, 0, -1, 1, 1),
+        LEFT(-1, 0, 0, 2, 1, 1, 1),
+        RIGHT(1, 0, 0, 2, -1, 1, 1),
+        TOP(0, 1, 0, 0, 1, 2, -1),
+        BOTTOM(0, -1, 0, 0, 1, 2, 1);
+
+        static final Face[] VALUES = values();
+
+        final int nx, ny, nz;
+        final int normalAxis, normalSign;
+        final int axis1, sign1;
+        final int axis2, sign2;
+
+        Face(int nx, int ny, int nz, int axis1, int sign1, int axis2, int sign2) {
+            this.nx = nx;
+            this.ny = ny;
+            this.nz = nz;
+            this.normalAxis = nx != 0 ? 0 : ny != 0 ? 1 : 2;
+            this.normalSign = nx + ny + nz;
+            this.axis1 = axis1;
+            this.sign1 = sign1;
+            this.axis2 = axis2;
+            this.sign2 = sign2;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package org.example;
+
+import java.util.Arrays;
+
+/**
+ * Copy of a chunk's blocks padded by one block on every side with the
+ * touching layer of each face-adjacent chunk, so the mesher can cull faces
+ * on chunk boundaries without looking anything up in the {@link World}.
+ * Neighbors that don't exist read as air. Instances are reused between
+ * captures to avoid allocating per chunk.
+ */
+public class ChunkSnapshot {
+    private int width, height, depth;
+    private int scale = 1;
+    private int paddedWidth, paddedDepth;
+    private byte[] blocks = new byte[0];
+    private byte[] dense = new byte[0]; // the chunk's own blocks, expanded
+
+    /**
+     * @param world used to find the six face neighbors; may be null to treat them all as air
+     */
+    public void capture(World world, Chunk chunk) {
+        scale = 1;
+        width = chunk.width;
+        height = chunk.height;
+        depth = chunk.depth;
+        paddedWidth = width + 2;
+        paddedDepth = depth + 2;
+
+        clearBlocks();
+
+        // Interior: one row of width blocks at a time from the chunk's x-fastest layout
+        if (dense.length < width * height * depth) {
+            dense = new byte[width * height * depth];
+        }
+        chunk.getBlocks(dense);
+        byte[] src = dense;
+        for (int y = 0; y < height; y++) {
+            for (int z = 0; z < depth; z++) {
+                System.arraycopy(src, z * width + y * width * depth, blocks, index(0, y, z), width);
+            }
+        }
+
+        if (world == null) {
+            return;
+        }
+
+        Chunk left = world.getChunk(chunk.chunkX - 1, chunk.chunkY, chunk.chunkZ);
+        Chunk right = world.getChunk(chunk.chunkX + 1, chunk.chunkY, chunk.chunkZ);
+        Chunk below = world.getChunk(chunk.chunkX, chunk.chunkY - 1, chunk.chunkZ);
+        Chunk above = world.getChunk(chunk.chunkX, chunk.chunkY + 1, chunk.chunkZ);
+        Chunk back = world.getChunk(chunk.chunkX, chunk.chunkY, chunk.chunkZ - 1);
+        Chunk front = world.getChunk(chunk.chunkX, chunk.chunkY, chunk.chunkZ + 1);
+
+        for (int y = 0; y < height; y++) {
+            for (int z = 0; z < depth; z++) {
+                if (left != null) blocks[index(-1, y, z)] = left.getBlock(width - 1, y, z);
+                if (right != null) blocks[index(width, y, z)] = right.getBlock(0, y, z);
+            }
+        }
+        for (int z = 0; z < depth; z++) {
+            for (int x = 0; x < width; x++) {
+                if (below != null) blocks[index(x, -1, z)] = below.getBlock(x, height - 1, z);
+                if (above != null) blocks[index(x, height, z)] = above.getBlock(x, 0, z);
+            }
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (back != null) blocks[index(x, y, -1)] = back.getBlock(x, y, depth - 1);
+                if (front != null) blocks[index(x, y, depth)] = front.getBlock(x, y, 0);
+            }
+        }
+    }
+
+    /**
+     * Fills this snapshot with {@code source} merged into cells of
+     * {@code scale} blocks per axis, for level-of-detail meshing. A cell is
+     * solid if any of its blocks is, and takes the id of its highest solid
+     * block so grass stays on top; merged terrain only ever grows, so it can't
+     * open holes that the full-detail mesh of a neighbor would show through.
+     * A padding cell is solid only if every block it covers in the neighbor's
+     * touching layer is, so boundary faces are culled only where the neighbor
+     * hides them whatever level it is drawn at.
+     *
+     * @param source a full-detail capture
+     */
+    public void downsample(ChunkSnapshot source, int scale) {
+        if (source.width % scale != 0 || source.height % scale != 0 || source.depth % scale != 0) {
+            throw new IllegalArgumentException("Chunk size " + source.width + "x" + source.height + "x" + source.depth
+                    + " is not a multiple of " + scale);
+        }
+        this.scale = scale;
+        width = source.width / scale;
+        height = source.height / scale;
+        depth = source.depth / scale;
+        paddedWidth = width + 2;
+        paddedDepth = depth + 2;
+        clearBlocks();
+
+        for (int y = 0; y < height; y++) {
+            for (int z = 0; z < depth; z++) {
+                for (int x = 0; x < width; x++) {
+                    blocks[index(x, y, z)] = highestSolid(source, x * scale, y * scale, z * scale, scale);
+                }
+            }
+        }
+
+        for (int y = 0; y < height; y++) {
+            for (int z = 0; z < depth; z++) {
+                blocks[index(-1, y, z)] = solidLayer(source, -1, y * scale, z * scale, 0, 1, 0, 0, 0, 1, scale);
+                blocks[index(width, y, z)] = solidLayer(source, source.width, y * scale, z * scale, 0, 1, 0, 0, 0, 1, scale);
+            }
+        }
+        for (int z = 0; z < depth; z++) {
+            for (int x = 0; x < width; x++) {
+                blocks[index(x, -1, z)] = solidLayer(source, x * scale, -1, z * scale, 1, 0, 0, 0, 0, 1, scale);
+                blocks[index(x, height, z)] = solidLayer(source, x * scale, source.height, z * scale, 1, 0, 0, 0, 0, 1, scale);
+            }
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                blocks[index(x, y, -1)] = solidLayer(source, x * scale, y * scale, -1, 1, 0, 0, 0, 1, 0, scale);
+                blocks[index(x, y, depth)] = solidLayer(source, x * scale, y * scale, source.depth, 1, 0, 0, 0, 1, 0, scale);
+            }
+        }
+    }
+
+    private static byte highestSolid(ChunkSnapshot source, int x0, int y0, int z0, int scale) {
+        for (int y = y0 + scale - 1; y >= y0; y--) {
+            for (int z = z0; z < z0 + scale; z++) {
+                for (int x = x0; x < x0 + scale; x++) {
+                    byte block = source.getBlock(x, y, z);
+                    if (block != Block.AIR) {
+                        return block;
+                    }
+                }
+            }
+        }
+        return Block.AIR;
+    }
+
+    /** The block at (x, y, z) if the {@code scale x scale} square spanned by u and v from it is all solid, else air. */
+    private static byte solidLayer(ChunkSnapshot source, int x, int y, int z,
+                                   int ux, int uy, int uz, int vx, int vy, int vz, int scale) {
+        for (int j = 0; j < scale; j++) {
+            for (int i = 0; i < scale; i++) {
+                if (source.getBlock(x + i * ux + j * vx, y + i * uy + j * vy, z + i * uz + j * vz) == Block.AIR) {
+                    return Block.AIR;
+                }
+            }
+        }
+        return source.getBlock(x, y, z);
+    }
+
+    private void clearBlocks() {
+        int size = paddedWidth * (height + 2) * paddedDepth;
+        if (blocks.length < size) {
+            blocks = new byte[size];
+        } else {
+            Arrays.fill(blocks, 0, size, Block.AIR);
+        }
+    }
+
+    private int index(int x, int y, int z) {
+        return (x + 1) + (z + 1) * paddedWidth + (y + 1) * paddedWidth * paddedDepth;
+    }
+
+    /** Block at chunk-local coordinates; valid from -1 to size inclusive on each axis. */
+    public byte getBlock(int x, int y, int z) {
+        return blocks[index(x, y, z)];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /** Blocks per axis in each cell: 1 for a capture, more for a {@link #downsample}d copy. */
+    public int getScale() {
+        return scale;
+    }
+}
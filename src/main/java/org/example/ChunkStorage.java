@@ -0,0 +1,438 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Saves chunks to, and loads them from, {@link RegionFile}s in one directory.
+ * Region files are opened on first use, and only created once a chunk in
+ * them is saved. At most {@link #MAX_OPEN_REGIONS} stay open; past that the
+ * least recently used one nobody is reading or writing is closed.
+ * <p>
+ * {@link #save} only queues a dirty chunk; a background saver thread copies,
+ * compresses and writes it once it has sat in the queue for
+ * {@link #COALESCE_NANOS}, so a burst of edits to one chunk costs one write.
+ * The saver takes everything that is due in one batch. If the queue passes
+ * {@link #URGENT_DEPTH} chunks it stops waiting out the window, and at
+ * {@link #MAX_DEPTH} callers of {@link #save} block until it catches up.
+ * A chunk whose write fails goes back in the queue and is tried again, up
+ * to {@link #MAX_SAVE_ATTEMPTS} times in all.
+ * <p>
+ * Until a chunk's write is done, {@link #load} returns its queued or
+ * in-flight blocks, so a chunk unloaded and loaded again in quick
+ * succession never reads stale data from disk.
+ */
+public class ChunkStorage {
+    static final long COALESCE_NANOS = TimeUnit.SECONDS.toNanos(1);
+    static final int URGENT_DEPTH = 256;
+    static final int MAX_DEPTH = 4096;
+    static final int MAX_SAVE_ATTEMPTS = 5;
+    // Enough for the regions around a view distance well past a region's width
+    static final int MAX_OPEN_REGIONS = 16;
+
+    private final Path directory;
+    private final int height;
+
+    // Open region files by region key in access order, least recently used first; guarded by itself
+    private final LinkedHashMap<Long, OpenRegion> regions = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Chunks waiting for the saver by World.chunkKey, oldest first; guarded by itself
+    private final LinkedHashMap<Long, Queued> queue = new LinkedHashMap<>();
+    private boolean closing;
+    // Blocks copied by the saver whose write hasn't finished yet; filled under the queue lock as chunks leave it
+    private final ConcurrentHashMap<Long, byte[]> inFlight = new ConcurrentHashMap<>();
+    private final Thread saver;
+
+    // Only touched by the saver thread
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private byte[] compressed = new byte[16 * 16 * 16 + 64];
+    private final List<Queued> batch = new ArrayList<>();
+
+    private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(Inflater::new);
+
+    // Metrics
+    private final AtomicLong chunksSaved = new AtomicLong();
+    private final AtomicLong saveFailures = new AtomicLong();
+    private volatile double chunksPerSecond;
+    private long rateWindowStart = System.nanoTime();
+    private long rateWindowSaved;
+
+    /**
+     * @param height the world's height in chunks; region files record it and refuse to open for another
+     */
+    public ChunkStorage(Path directory, int height) throws IOException {
+        this.directory = directory;
+        this.height = height;
+        Files.createDirectories(directory);
+
+        saver = new Thread(this::runSaver, "chunk-saver");
+        saver.setDaemon(true);
+        saver.start();
+    }
+
+    private static long regionKey(int chunkX, int chunkZ) {
+        return World.chunkKey(Math.floorDiv(chunkX, RegionFile.SIZE), 0, Math.floorDiv(chunkZ, RegionFile.SIZE));
+    }
+
+    private Path regionPath(long regionKey) {
+        return directory.resolve("r." + World.keyX(regionKey) + "." + World.keyZ(regionKey) + ".region");
+    }
+
+    /**
+     * The region's file, opened on first use, or null if it doesn't exist and
+     * {@code create} is false. It can't be closed until handed back to
+     * {@link #release}.
+     */
+    private OpenRegion acquire(int chunkX, int chunkZ, boolean create) throws IOException {
+        long key = regionKey(chunkX, chunkZ);
+        synchronized (regions) {
+            OpenRegion region = regions.get(key);
+            if (region == null) {
+                Path path = regionPath(key);
+                if (!create && !Files.exists(path)) {
+                    return null;
+                }
+                region = new OpenRegion(new RegionFile(path, height));
+                regions.put(key, region);
+            }
+            region.users++;
+            return region;
+        }
+    }
+
+    private void release(OpenRegion region) {
+        synchronized (regions) {
+            region.users--;
+            Iterator<OpenRegion> it = regions.values().iterator();
+            while (regions.size() > MAX_OPEN_REGIONS && it.hasNext()) {
+                OpenRegion idle = it.next();
+                if (idle.users == 0) {
+                    it.remove();
+                    closeRegion(idle.file);
+                }
+            }
+        }
+    }
+
+    private static void closeRegion(RegionFile file) {
+        try {
+            file.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close region file: " + e);
+        }
+    }
+
+    /** Region files open right now. */
+    int getOpenRegionCount() {
+        synchronized (regions) {
+            return regions.size();
+        }
+    }
+
+    /**
+     * Returns the saved blocks of a chunk in {@link Chunk#getBlocks()} order, or
+     * null if it was never saved or can't be read. Safe to call from any thread.
+     */
+    public byte[] load(int chunkX, int chunkY, int chunkZ) {
+        long key = World.chunkKey(chunkX, chunkY, chunkZ);
+        synchronized (queue) {
+            Queued queued = queue.get(key);
+            if (queued != null) {
+                return queued.chunk.getBlocks();
+            }
+        }
+        byte[] pending = inFlight.get(key);
+        if (pending != null) {
+            return pending;
+        }
+
+        try {
+            OpenRegion region = acquire(chunkX, chunkZ, false);
+            if (region == null) {
+                return null;
+            }
+            byte[] payload;
+            try {
+                payload = region.file.read(Math.floorMod(chunkX, RegionFile.SIZE), chunkY, Math.floorMod(chunkZ, RegionFile.SIZE));
+            } finally {
+                release(region);
+            }
+            return payload == null ? null : decompress(payload);
+        } catch (IOException | DataFormatException e) {
+            // An unreadable chunk is regenerated rather than taking the world down with it
+            System.err.printf("Failed to load chunk (%d, %d, %d): %s%n", chunkX, chunkY, chunkZ, e);
+            return null;
+        }
+    }
+
+    /** Payload layout: uncompressed length, then the deflated blocks. */
+    private byte[] decompress(byte[] payload) throws DataFormatException {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        byte[] blocks = new byte[buffer.getInt()];
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        inflater.setInput(payload, Integer.BYTES, payload.length - Integer.BYTES);
+        int length = inflater.inflate(blocks);
+        if (length != blocks.length || !inflater.finished()) {
+            throw new DataFormatException("Chunk payload inflated to " + length + " bytes, expected " + blocks.length);
+        }
+        return blocks;
+    }
+
+    /**
+     * Queues a chunk for saving if it has unsaved edits. A chunk already in the
+     * queue keeps its place, so repeated edits coalesce into one write. Blocks
+     * while the queue is full. Call on the thread that edits chunks.
+     */
+    public void save(Chunk chunk) {
+        if (!chunk.isDirty()) {
+            return;
+        }
+
+        long key = World.chunkKey(chunk.chunkX, chunk.chunkY, chunk.chunkZ);
+        synchronized (queue) {
+            if (closing) {
+                throw new IllegalStateException("Chunk storage is closed");
+            }
+            Queued queued = queue.get(key);
+            if (queued != null) {
+                // A reloaded chunk replaces its unloaded predecessor, which it already includes
+                queued.chunk = chunk;
+                return;
+            }
+
+            boolean interrupted = false;
+            while (queue.size() >= MAX_DEPTH) {
+                try {
+                    queue.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+
+            queue.put(key, new Queued(key, chunk, System.nanoTime()));
+            queue.notifyAll();
+        }
+    }
+
+    private void runSaver() {
+        while (takeBatch()) {
+            int saved = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                if (write(batch.get(i))) {
+                    saved++;
+                }
+            }
+            chunksSaved.addAndGet(saved);
+            updateRate(saved);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Waits until some queued chunks are due, or the queue is urgent or closing,
+     * and moves the due ones into {@link #batch}.
+     *
+     * @return false once the storage is closing and the queue is empty
+     */
+    private boolean takeBatch() {
+        synchronized (queue) {
+            while (true) {
+                long now = System.nanoTime();
+                boolean flushAll = closing || queue.size() >= URGENT_DEPTH;
+
+                Iterator<Queued> it = queue.values().iterator();
+                while (it.hasNext()) {
+                    Queued queued = it.next();
+                    if (!flushAll && now - queued.queuedAt < COALESCE_NANOS) {
+                        break; // everything after it was queued later still
+                    }
+                    it.remove();
+                    if (queued.chunk.isDirty()) {
+                        // Copied here so load finds the blocks in one map or the other until the write is done
+                        // An edit racing with the copy bumps the version past the one recorded, so the chunk stays dirty
+                        queued.version = queued.chunk.getVersion();
+                        queued.blocks = queued.chunk.getBlocks();
+                        inFlight.put(queued.key, queued.blocks);
+                        batch.add(queued);
+                    }
+                }
+
+                if (!batch.isEmpty()) {
+                    queue.notifyAll(); // room for blocked callers of save
+                    return true;
+                }
+                if (closing) {
+                    return false;
+                }
+
+                try {
+                    if (queue.isEmpty()) {
+                        queue.wait();
+                    } else {
+                        long waitNanos = COALESCE_NANOS - (now - queue.values().iterator().next().queuedAt);
+                        TimeUnit.NANOSECONDS.timedWait(queue, Math.max(waitNanos, 1));
+                    }
+                } catch (InterruptedException e) {
+                    // Nothing interrupts the saver on purpose; just look at the queue again
+                }
+            }
+        }
+    }
+
+    /** @return true if the chunk was written */
+    private boolean write(Queued queued) {
+        Chunk chunk = queued.chunk;
+        byte[] blocks = queued.blocks;
+        try {
+            deflater.reset();
+            deflater.setInput(blocks);
+            deflater.finish();
+            int length = Integer.BYTES;
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+            ByteBuffer.wrap(compressed).putInt(0, blocks.length);
+
+            OpenRegion region = acquire(chunk.chunkX, chunk.chunkZ, true);
+            try {
+                region.file.write(Math.floorMod(chunk.chunkX, RegionFile.SIZE), chunk.chunkY,
+                        Math.floorMod(chunk.chunkZ, RegionFile.SIZE), compressed, length);
+            } finally {
+                release(region);
+            }
+            chunk.markSaved(queued.version);
+            return true;
+        } catch (IOException e) {
+            System.err.printf("Failed to save chunk (%d, %d, %d): %s%n", chunk.chunkX, chunk.chunkY, chunk.chunkZ, e);
+            saveFailures.incrementAndGet();
+            retry(queued);
+            return false;
+        } finally {
+            inFlight.remove(queued.key, blocks);
+        }
+    }
+
+    /**
+     * Queues a chunk whose write failed again, before its blocks leave
+     * {@link #inFlight}. It waits out the coalescing window like a new save,
+     * unless the queue is urgent or closing.
+     */
+    private void retry(Queued failed) {
+        Chunk chunk = failed.chunk;
+        synchronized (queue) {
+            if (queue.containsKey(failed.key)) {
+                return; // saved again meanwhile, and that entry writes the newer blocks
+            }
+            if (failed.attempts + 1 >= MAX_SAVE_ATTEMPTS) {
+                System.err.printf("Giving up on saving chunk (%d, %d, %d) after %d attempts%n",
+                        chunk.chunkX, chunk.chunkY, chunk.chunkZ, MAX_SAVE_ATTEMPTS);
+                return;
+            }
+            // Not bounded by MAX_DEPTH: the saver can't wait for itself to make room
+            Queued queued = new Queued(failed.key, chunk, System.nanoTime());
+            queued.attempts = failed.attempts + 1;
+            queue.put(failed.key, queued);
+        }
+    }
+
+    private void updateRate(int saved) {
+        rateWindowSaved += saved;
+        long now = System.nanoTime();
+        long elapsed = now - rateWindowStart;
+        if (elapsed >= TimeUnit.SECONDS.toNanos(1)) {
+            chunksPerSecond = rateWindowSaved * 1e9 / elapsed;
+            rateWindowStart = now;
+            rateWindowSaved = 0;
+        }
+    }
+
+    /** Chunks waiting to be written, including any being written right now. */
+    public int getQueueDepth() {
+        synchronized (queue) {
+            return queue.size() + inFlight.size();
+        }
+    }
+
+    public long getChunksSaved() {
+        return chunksSaved.get();
+    }
+
+    /** Writes that failed, counting each retry of the same chunk. */
+    public long getSaveFailures() {
+        return saveFailures.get();
+    }
+
+    /** Chunks written per second, measured over the saver's most recent second or more of batches. */
+    public double getChunksPerSecond() {
+        return chunksPerSecond;
+    }
+
+    /**
+     * Writes every queued chunk, without waiting out the coalescing window, and
+     * closes the region files. {@link #getChunksSaved} then holds the final count.
+     */
+    public void close() {
+        synchronized (queue) {
+            closing = true;
+            queue.notifyAll();
+        }
+        try {
+            saver.join(TimeUnit.MINUTES.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (regions) {
+            for (OpenRegion region : regions.values()) {
+                closeRegion(region.file);
+            }
+            regions.clear();
+        }
+        deflater.end();
+    }
+
+    private static final class OpenRegion {
+        final RegionFile file;
+        int users; // loads and writes using the file right now; guarded by regions
+
+        OpenRegion(RegionFile file) {
+            this.file = file;
+        }
+    }
+
+    private static final class Queued {
+        final long key;
+        Chunk chunk;
+        final long queuedAt;
+        // Set by the saver when it takes the chunk
+        int version;
+        byte[] blocks;
+        int attempts; // failed writes so far
+
+        Queued(long key, Chunk chunk, long queuedAt) {
+            this.key = key;
+            this.chunk = chunk;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package org.example;
+
+import org.joml.Vector3f;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the chunk columns around the camera loaded, with a {@link ChunkMesh}
+ * per chunk whose levels of detail the renderer requests as it needs them
+ * (see {@link ChunkMeshPipeline#request}). Columns within
+ * {@code viewDistance} chunks are loaded nearest first, a few per frame;
+ * columns are only unloaded once they are {@code hysteresis} chunks past
+ * that, so moving back and forth over a chunk border doesn't thrash.
+ * Unloading frees the meshes' arena slices and the world's block data.
+ * <p>
+ * Columns are loaded from disk or generated on a small pool of loader
+ * threads; the render thread only creates meshes for columns that are done.
+ */
+public class ChunkStreamer {
+    // Columns started per frame; they are meshed the first time they're drawn, so this keeps the loader and mesh queues short and ordered by distance
+    private static final int MAX_COLUMNS_PER_FRAME = 4;
+
+    private final World world;
+    private final ChunkArena arena;
+    private final int viewDistance;
+    private final int hysteresis;
+
+    private final Map<Long, ChunkMesh> meshes = new HashMap<>();
+    private final List<ChunkMesh> meshList = new ArrayList<>(); // same meshes, indexable without an iterator
+    private final Set<ChunkMesh> unloadedMeshes = new HashSet<>(); // scratch for dropping them from meshList in one pass
+    private final Set<Long> loadedColumns = new HashSet<>();
+    private final List<long[]> pendingColumns = new ArrayList<>(); // {columnKey, distanceSq}, nearest last
+    private final List<Long> loadingColumns = new ArrayList<>();   // started on the loader pool, no meshes yet
+
+    private final ExecutorService loader;
+
+    private int centerX = Integer.MIN_VALUE;
+    private int centerZ = Integer.MIN_VALUE;
+
+    public ChunkStreamer(World world, ChunkArena arena, int viewDistance, int hysteresis) {
+        this.world = world;
+        this.arena = arena;
+        this.viewDistance = viewDistance;
+        this.hysteresis = hysteresis;
+
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadId = new AtomicInteger();
+        loader = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "chunk-loader-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** Call once per frame from the render thread. */
+    public void update(Vector3f cameraPos) {
+        int chunkX = Math.floorDiv((int) Math.floor(cameraPos.x), 16);
+        int chunkZ = Math.floorDiv((int) Math.floor(cameraPos.z), 16);
+        if (chunkX != centerX || chunkZ != centerZ) {
+            centerX = chunkX;
+            centerZ = chunkZ;
+            unloadFarColumns();
+            collectPendingColumns();
+        }
+
+        for (int i = 0; i < MAX_COLUMNS_PER_FRAME && !pendingColumns.isEmpty(); i++) {
+            long key = pendingColumns.remove(pendingColumns.size() - 1)[0];
+            world.requestColumn(World.keyX(key), World.keyZ(key), loader);
+            loadingColumns.add(key);
+        }
+
+        for (int i = loadingColumns.size() - 1; i >= 0; i--) {
+            long key = loadingColumns.get(i);
+            int x = World.keyX(key);
+            int z = World.keyZ(key);
+            if (world.getLoadedChunk(x, 0, z) != null) {
+                loadingColumns.remove(i);
+                addColumnMeshes(x, z);
+            } else {
+                // No-op while it's underway; starts it again if loading failed
+                world.requestColumn(x, z, loader);
+            }
+        }
+    }
+
+    private void collectPendingColumns() {
+        pendingColumns.clear();
+        int radiusSq = viewDistance * viewDistance;
+        for (int dx = -viewDistance; dx <= viewDistance; dx++) {
+            for (int dz = -viewDistance; dz <= viewDistance; dz++) {
+                int distanceSq = dx * dx + dz * dz;
+                long key = World.chunkKey(centerX + dx, 0, centerZ + dz);
+                if (distanceSq <= radiusSq && !loadedColumns.contains(key) && !loadingColumns.contains(key)) {
+                    pendingColumns.add(new long[]{key, distanceSq});
+                }
+            }
+        }
+        // Farthest first, so the nearest column is popped off the end
+        pendingColumns.sort((a, b) -> Long.compare(b[1], a[1]));
+    }
+
+    private void addColumnMeshes(int chunkX, int chunkZ) {
+        loadedColumns.add(World.chunkKey(chunkX, 0, chunkZ));
+        for (int y = 0; y < world.getHeight(); y++) {
+            ChunkMesh mesh = new ChunkMesh(world.getLoadedChunk(chunkX, y, chunkZ), arena);
+            meshes.put(World.chunkKey(chunkX, y, chunkZ), mesh);
+            meshList.add(mesh);
+        }
+    }
+
+    private void unloadFarColumns() {
+        int unloadDistance = viewDistance + hysteresis;
+        int unloadDistanceSq = unloadDistance * unloadDistance;
+
+        // Columns still loading that are now out of range are dropped by the world below
+        for (int i = loadingColumns.size() - 1; i >= 0; i--) {
+            long key = loadingColumns.get(i);
+            int dx = World.keyX(key) - centerX;
+            int dz = World.keyZ(key) - centerZ;
+            if (dx * dx + dz * dz > unloadDistanceSq) {
+                loadingColumns.remove(i);
+            }
+        }
+
+        Iterator<Long> it = loadedColumns.iterator();
+        while (it.hasNext()) {
+            long key = it.next();
+            int dx = World.keyX(key) - centerX;
+            int dz = World.keyZ(key) - centerZ;
+            if (dx * dx + dz * dz > unloadDistanceSq) {
+                it.remove();
+                for (int y = 0; y < world.getHeight(); y++) {
+                    ChunkMesh mesh = meshes.remove(World.chunkKey(World.keyX(key), y, World.keyZ(key)));
+                    if (mesh != null) {
+                        mesh.cleanup();
+                        unloadedMeshes.add(mesh);
+                    }
+                }
+            }
+        }
+        // One pass over the list instead of a linear search per unloaded mesh; keeps the load order
+        if (!unloadedMeshes.isEmpty()) {
+            meshList.removeIf(unloadedMeshes::contains);
+            unloadedMeshes.clear();
+            // Gives memory back once the freed slices leave most of the arena empty
+            arena.trim();
+        }
+
+        // Meshing reads one column past the loaded ones, so keep that ring too
+        world.unloadColumnsOutside(centerX, centerZ, unloadDistance + 1);
+    }
+
+    public ChunkMesh getMesh(int chunkX, int chunkY, int chunkZ) {
+        return meshes.get(World.chunkKey(chunkX, chunkY, chunkZ));
+    }
+
+    /** Every loaded mesh. The list is live; don't modify it. */
+    public List<ChunkMesh> getMeshes() {
+        return meshList;
+    }
+
+    public int getLoadedColumnCount() {
+        return loadedColumns.size();
+    }
+
+    public void cleanup() {
+        loader.shutdownNow();
+        for (ChunkMesh mesh : meshes.values()) {
+            mesh.cleanup();
+        }
+        meshes.clear();
+        meshList.clear();
+        loadedColumns.clear();
+        loadingColumns.clear();
+    }
+}
@@ -0,0 +1,68 @@
+package org.example;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/** One rendered frame, committed by {@link FrameTelemetry} while a flight recording is running. */
+@Name("org.example.Frame")
+@Label("Frame")
+@Category("Voxel World")
+@Description("CPU and GPU time and counters for one frame")
+class FrameEvent extends Event {
+    @Label("Frame Time")
+    @Timespan
+    long frameNanos;
+
+    @Label("Update")
+    @Timespan
+    long updateNanos;
+
+    @Label("Upload")
+    @Timespan
+    long uploadNanos;
+
+    @Label("Cull")
+    @Timespan
+    long cullNanos;
+
+    @Label("Draw")
+    @Timespan
+    long drawNanos;
+
+    @Label("GPU Draw")
+    @Description("GL_TIME_ELAPSED of the chunk draw, from a few frames earlier; -1 until the first result")
+    @Timespan
+    long gpuNanos;
+
+    @Label("Draw Calls")
+    @Description("GL draw calls issued: the chunk multi-draw plus one per occlusion query box")
+    int drawCalls;
+
+    @Label("Chunk Draws")
+    @Description("Chunk meshes drawn, i.e. commands in the multi-draw")
+    int chunkDraws;
+
+    @Label("Triangles")
+    long triangles;
+
+    @Label("Meshes Built")
+    int meshesBuilt;
+
+    @Label("Chunks Resident")
+    int chunksResident;
+
+    @Label("Chunks Frustum Culled")
+    int chunksFrustumCulled;
+
+    @Label("Chunks Occluded")
+    @Description("Chunks in the view frustum skipped because an occlusion query found them hidden")
+    int chunksOccluded;
+
+    @Label("Save Queue Depth")
+    @Description("Chunks waiting for, or being written by, the ChunkStorage saver")
+    int saveQueueDepth;
+}
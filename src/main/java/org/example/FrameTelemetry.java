@@ -0,0 +1,253 @@
+package org.example;
+
+import jdk.jfr.EventType;
+import org.HdrHistogram.Histogram;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Per-frame timings and counters for the render loop. Each frame's stage
+ * times go into HDR histograms and, while a flight recording is running,
+ * into a {@link FrameEvent}. Every {@link #REPORT_INTERVAL_NANOS} a summary
+ * of percentiles and averages is printed and, if the {@code telemetry.csv}
+ * system property names a file, appended to it as a CSV row; the histograms
+ * then start over.
+ * <p>
+ * Recording a frame allocates nothing; only the periodic report does.
+ * Render thread only.
+ */
+public class FrameTelemetry {
+    public enum Stage {
+        UPDATE, UPLOAD, CULL, DRAW
+    }
+
+    private static final long REPORT_INTERVAL_NANOS = 5_000_000_000L;
+    // Histograms hold microseconds up to 10 s at 3 significant digits
+    private static final long MAX_TRACKABLE_MICROS = 10_000_000L;
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final EventType FRAME_EVENT_TYPE = EventType.getEventType(FrameEvent.class);
+
+    private final Histogram frameHistogram = newHistogram();
+    private final Histogram gpuHistogram = newHistogram();
+    private final Histogram[] stageHistograms = new Histogram[STAGES.length];
+
+    private final long[] stageStart = new long[STAGES.length];
+    private final long[] stageNanos = new long[STAGES.length];
+    private long frameStart = -1;
+    private long frameNanos;
+
+    // This frame's counters
+    private int drawCalls;
+    private int chunkDraws;
+    private long triangles;
+    private int meshesBuilt;
+    private int chunksResident;
+    private int chunksFrustumCulled;
+    private int chunksOccluded;
+    private int saveQueueDepth;
+    private double chunksSavedPerSecond;
+
+    // Totals since the last report
+    private long reportStart = System.nanoTime();
+    private int reportFrames;
+    private long reportDrawCalls;
+    private long reportChunkDraws;
+    private long reportTriangles;
+    private long reportMeshesBuilt;
+    private long reportFrustumCulled;
+    private long reportOccluded;
+
+    private final PrintWriter csv;
+
+    public FrameTelemetry() {
+        for (int i = 0; i < STAGES.length; i++) {
+            stageHistograms[i] = newHistogram();
+        }
+        csv = openCsv(System.getProperty("telemetry.csv"));
+    }
+
+    private static Histogram newHistogram() {
+        return new Histogram(MAX_TRACKABLE_MICROS, 3);
+    }
+
+    private static PrintWriter openCsv(String path) {
+        if (path == null) return null;
+        try {
+            PrintWriter writer = new PrintWriter(new FileWriter(path, false));
+            writer.print("time_ms,frames,frame_p50_ms,frame_p95_ms,frame_p99_ms,frame_max_ms");
+            for (Stage stage : STAGES) {
+                writer.printf(",%1$s_p50_ms,%1$s_p99_ms", stage.name().toLowerCase());
+            }
+            writer.println(",gpu_p50_ms,gpu_p99_ms,draw_calls_per_frame,chunk_draws_per_frame,triangles_per_frame,meshes_built,chunks_resident,frustum_culled_per_frame,occluded_per_frame,save_queue_depth,chunks_saved_per_s");
+            writer.flush();
+            return writer;
+        } catch (IOException e) {
+            System.err.println("Telemetry CSV disabled, can't open " + path + ": " + e);
+            return null;
+        }
+    }
+
+    /** Starts a frame; the time since the previous call is that frame's total. */
+    public void beginFrame() {
+        long now = System.nanoTime();
+        frameNanos = frameStart < 0 ? 0 : now - frameStart;
+        frameStart = now;
+        for (int i = 0; i < STAGES.length; i++) {
+            stageNanos[i] = 0;
+        }
+        drawCalls = 0;
+        chunkDraws = 0;
+        triangles = 0;
+        meshesBuilt = 0;
+        chunksFrustumCulled = 0;
+        chunksOccluded = 0;
+    }
+
+    public void begin(Stage stage) {
+        stageStart[stage.ordinal()] = System.nanoTime();
+    }
+
+    public void end(Stage stage) {
+        stageNanos[stage.ordinal()] += System.nanoTime() - stageStart[stage.ordinal()];
+    }
+
+    /**
+     * @param calls      GL draw calls actually issued; a multi-draw counts once
+     * @param chunkDraws chunk meshes drawn, i.e. commands in the multi-draws
+     */
+    public void countDraws(int calls, int chunkDraws, long triangles) {
+        this.drawCalls += calls;
+        this.chunkDraws += chunkDraws;
+        this.triangles += triangles;
+    }
+
+    /** Chunks with geometry skipped for being outside the view frustum, and for being hidden by terrain. */
+    public void countCulled(int frustumCulled, int occluded) {
+        chunksFrustumCulled += frustumCulled;
+        chunksOccluded += occluded;
+    }
+
+    public void countMeshesBuilt(int meshes) {
+        meshesBuilt += meshes;
+    }
+
+    public void setChunksResident(int chunks) {
+        chunksResident = chunks;
+    }
+
+    /** Latest {@link ChunkStorage} metrics: chunks waiting to be written and the saver's recent write rate. */
+    public void setSaveQueue(int depth, double chunksPerSecond) {
+        saveQueueDepth = depth;
+        chunksSavedPerSecond = chunksPerSecond;
+    }
+
+    /**
+     * Records the frame started by {@link #beginFrame}.
+     *
+     * @param gpuNanos latest GPU time from a {@link GpuTimer}, or -1 if there is none yet
+     */
+    public void endFrame(long gpuNanos) {
+        if (frameNanos > 0) {
+            record(frameHistogram, frameNanos);
+        }
+        for (int i = 0; i < STAGES.length; i++) {
+            record(stageHistograms[i], stageNanos[i]);
+        }
+        if (gpuNanos >= 0) {
+            record(gpuHistogram, gpuNanos);
+        }
+
+        reportFrames++;
+        reportDrawCalls += drawCalls;
+        reportChunkDraws += chunkDraws;
+        reportTriangles += triangles;
+        reportMeshesBuilt += meshesBuilt;
+        reportFrustumCulled += chunksFrustumCulled;
+        reportOccluded += chunksOccluded;
+
+        // Only allocates while a recording has the event enabled
+        if (FRAME_EVENT_TYPE.isEnabled()) {
+            FrameEvent event = new FrameEvent();
+            event.frameNanos = frameNanos;
+            event.updateNanos = stageNanos[Stage.UPDATE.ordinal()];
+            event.uploadNanos = stageNanos[Stage.UPLOAD.ordinal()];
+            event.cullNanos = stageNanos[Stage.CULL.ordinal()];
+            event.drawNanos = stageNanos[Stage.DRAW.ordinal()];
+            event.gpuNanos = gpuNanos;
+            event.drawCalls = drawCalls;
+            event.chunkDraws = chunkDraws;
+            event.triangles = triangles;
+            event.meshesBuilt = meshesBuilt;
+            event.chunksResident = chunksResident;
+            event.chunksFrustumCulled = chunksFrustumCulled;
+            event.chunksOccluded = chunksOccluded;
+            event.saveQueueDepth = saveQueueDepth;
+            event.commit();
+        }
+
+        long now = System.nanoTime();
+        if (now - reportStart >= REPORT_INTERVAL_NANOS) {
+            report(now);
+        }
+    }
+
+    private static void record(Histogram histogram, long nanos) {
+        histogram.recordValue(Math.min(nanos / 1000, MAX_TRACKABLE_MICROS));
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getTotalCount() == 0 ? 0 : histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private void report(long now) {
+        int frames = Math.max(reportFrames, 1);
+        System.out.printf("Frame p50 %.2f p95 %.2f p99 %.2f max %.2f ms | update %.2f upload %.2f cull %.2f draw %.2f gpu %.2f ms p99"
+                        + " | %.1f GL draws, %.1f chunk draws, %d tris/frame | %.1f frustum-culled, %.1f occluded chunks/frame"
+                        + " | %d meshes built | %d chunks resident | save queue %d, %.1f chunks/s%n",
+                millis(frameHistogram, 50), millis(frameHistogram, 95), millis(frameHistogram, 99),
+                frameHistogram.getMaxValue() / 1000.0,
+                millis(stageHistograms[Stage.UPDATE.ordinal()], 99), millis(stageHistograms[Stage.UPLOAD.ordinal()], 99),
+                millis(stageHistograms[Stage.CULL.ordinal()], 99), millis(stageHistograms[Stage.DRAW.ordinal()], 99),
+                millis(gpuHistogram, 99),
+                (double) reportDrawCalls / frames, (double) reportChunkDraws / frames, reportTriangles / frames,
+                (double) reportFrustumCulled / frames, (double) reportOccluded / frames,
+                reportMeshesBuilt, chunksResident, saveQueueDepth, chunksSavedPerSecond);
+
+        if (csv != null) {
+            csv.printf("%d,%d,%.3f,%.3f,%.3f,%.3f", System.currentTimeMillis(), reportFrames,
+                    millis(frameHistogram, 50), millis(frameHistogram, 95), millis(frameHistogram, 99),
+                    frameHistogram.getMaxValue() / 1000.0);
+            for (Histogram histogram : stageHistograms) {
+                csv.printf(",%.3f,%.3f", millis(histogram, 50), millis(histogram, 99));
+            }
+            csv.printf(",%.3f,%.3f,%.2f,%.2f,%d,%d,%d,%.2f,%.2f,%d,%.2f%n", millis(gpuHistogram, 50), millis(gpuHistogram, 99),
+                    (double) reportDrawCalls / frames, (double) reportChunkDraws / frames, reportTriangles / frames, reportMeshesBuilt, chunksResident,
+                    (double) reportFrustumCulled / frames, (double) reportOccluded / frames,
+                    saveQueueDepth, chunksSavedPerSecond);
+            csv.flush();
+        }
+
+        frameHistogram.reset();
+        gpuHistogram.reset();
+        for (Histogram histogram : stageHistograms) {
+            histogram.reset();
+        }
+        reportStart = now;
+        reportFrames = 0;
+        reportDrawCalls = 0;
+        reportChunkDraws = 0;
+        reportTriangles = 0;
+        reportMeshesBuilt = 0;
+        reportFrustumCulled = 0;
+        reportOccluded = 0;
+    }
+
+    public void close() {
+        if (csv != null) {
+            csv.close();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.example;
+
+import static org.lwjgl.opengl.GL11C.GL_TRUE;
+import static org.lwjgl.opengl.GL15C.*;
+import static org.lwjgl.opengl.GL33C.*;
+
+/**
+ * Measures GPU time spent between {@link #begin} and {@link #end} with
+ * GL_TIME_ELAPSED queries. Results arrive a few frames late, so a small ring
+ * of queries is cycled and the oldest one is read once it's available,
+ * never stalling the pipeline to wait for it.
+ */
+public class GpuTimer {
+    private static final int FRAMES_IN_FLIGHT = 4;
+
+    private final int[] queries = new int[FRAMES_IN_FLIGHT];
+    private final boolean[] pending = new boolean[FRAMES_IN_FLIGHT];
+    private int current;
+    private long lastNanos = -1;
+
+    public GpuTimer() {
+        glGenQueries(queries);
+    }
+
+    public void begin() {
+        // Collect the result this slot produced FRAMES_IN_FLIGHT frames ago before reusing it
+        int query = queries[current];
+        if (pending[current]) {
+            if (glGetQueryObjecti(query, GL_QUERY_RESULT_AVAILABLE) == GL_TRUE) {
+                lastNanos = glGetQueryObjectui64(query, GL_QUERY_RESULT);
+            }
+            pending[current] = false;
+        }
+        glBeginQuery(GL_TIME_ELAPSED, query);
+    }
+
+    public void end() {
+        glEndQuery(GL_TIME_ELAPSED);
+        pending[current] = true;
+        current = (current + 1) % FRAMES_IN_FLIGHT;
+    }
+
+    /** The most recent measurement in nanoseconds, or -1 if none has come back yet. */
+    public long getLastNanos() {
+        return lastNanos;
+    }
+
+    public void cleanup() {
+        glDeleteQueries(queries);
+    }
+}
@@ -0,0 +1,122 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Terrain height for every block column, from fractal (fBm) simplex noise:
+ * {@code octaves} layers, each at twice the frequency and half the amplitude
+ * of the one before. Heights are generated a whole 16x16 chunk column at a
+ * time and kept in a bounded LRU cache, so every vertical chunk of a column,
+ * and anything else asking about it, shares one computation. Thread-safe.
+ */
+public class HeightmapGenerator {
+    // Horizontal size of the largest terrain features, in blocks
+    private static final double BASE_WAVELENGTH = 128.0;
+    private static final double LACUNARITY = 2.0;
+    private static final double PERSISTENCE = 0.5;
+
+    private static final int COLUMN_SIZE = 16;
+
+    private final int octaves;
+    private final int minHeight;
+    private final int maxHeight;
+    private final int cacheColumns;
+
+    // One generator per octave, seeded from the heightmap's seed, so octaves don't line up with each other
+    private final Noise[] octaveNoise;
+    private final double amplitudeSum;
+
+    // Access-ordered, so the eldest entry is the least recently used column
+    private final LinkedHashMap<Long, int[]> cache;
+
+    private final ThreadLocal<double[]> scratchNoise = ThreadLocal.withInitial(() -> new double[COLUMN_SIZE * COLUMN_SIZE]);
+    private final ThreadLocal<double[]> scratchSum = ThreadLocal.withInitial(() -> new double[COLUMN_SIZE * COLUMN_SIZE]);
+
+    /**
+     * @param cacheColumns chunk columns kept cached; the least recently used one is dropped beyond that
+     */
+    public HeightmapGenerator(long seed, int octaves, int minHeight, int maxHeight, int cacheColumns) {
+        if (octaves < 1) {
+            throw new IllegalArgumentException("Need at least one octave, got " + octaves);
+        }
+        this.octaves = octaves;
+        this.minHeight = minHeight;
+        this.maxHeight = maxHeight;
+        this.cacheColumns = cacheColumns;
+
+        Random random = new Random(seed);
+        octaveNoise = new Noise[octaves];
+        double amplitude = 1.0;
+        double sum = 0;
+        for (int octave = 0; octave < octaves; octave++) {
+            octaveNoise[octave] = new Noise(random.nextLong());
+            sum += amplitude;
+            amplitude *= PERSISTENCE;
+        }
+        amplitudeSum = sum;
+
+        cache = new LinkedHashMap<>(cacheColumns, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, int[]> eldest) {
+                return size() > HeightmapGenerator.this.cacheColumns;
+            }
+        };
+    }
+
+    /**
+     * Heights of the chunk column's 256 block columns, indexed {@code x + z * 16}
+     * in chunk-local coordinates. The array is shared with the cache; don't modify it.
+     */
+    public int[] getHeights(int chunkX, int chunkZ) {
+        long key = World.chunkKey(chunkX, 0, chunkZ);
+        int[] heights;
+        synchronized (cache) {
+            heights = cache.get(key);
+        }
+        if (heights != null) {
+            return heights;
+        }
+
+        // Generated outside the lock; two threads racing on one column just compute the same values
+        heights = generate(chunkX, chunkZ);
+        synchronized (cache) {
+            cache.put(key, heights);
+        }
+        return heights;
+    }
+
+    /** Height of the block column at world (x, z). */
+    public int getHeight(int worldX, int worldZ) {
+        int[] heights = getHeights(Math.floorDiv(worldX, COLUMN_SIZE), Math.floorDiv(worldZ, COLUMN_SIZE));
+        return heights[Math.floorMod(worldX, COLUMN_SIZE) + Math.floorMod(worldZ, COLUMN_SIZE) * COLUMN_SIZE];
+    }
+
+    private int[] generate(int chunkX, int chunkZ) {
+        double[] samples = scratchNoise.get();
+        double[] sum = scratchSum.get();
+        Arrays.fill(sum, 0);
+
+        double frequency = 1 / BASE_WAVELENGTH;
+        double amplitude = 1.0;
+        for (int octave = 0; octave < octaves; octave++) {
+            octaveNoise[octave].noise(samples, chunkX * COLUMN_SIZE * frequency, chunkZ * COLUMN_SIZE * frequency,
+                    frequency, COLUMN_SIZE, COLUMN_SIZE);
+            for (int i = 0; i < samples.length; i++) {
+                sum[i] += samples[i] * amplitude;
+            }
+            frequency *= LACUNARITY;
+            amplitude *= PERSISTENCE;
+        }
+
+        // Map the normalized sum from [-1, 1] to [minHeight, maxHeight]
+        int[] heights = new int[COLUMN_SIZE * COLUMN_SIZE];
+        for (int i = 0; i < heights.length; i++) {
+            double n = sum[i] / amplitudeSum;
+            heights[i] = (int) (((n + 1) / 2) * (maxHeight - minHeight)) + minHeight;
+        }
+        return heights;
+    }
+}
@@ -5,8 +5,8 @@ import org.lwjgl.glfw.*;
 import org.lwjgl.opengl.*;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.file.Paths;
+import java.util.List;
 
 import static org.lwjgl.glfw.GLFW.*;
 import static org.lwjgl.opengl.GL11C.*;
@@ -18,23 +18,94 @@ public class Main {
     private int height = 720;
 
     private ShaderProgram shaderProgram;
-    private Texture grassTexture;
+    private BlockTextures blockTextures;
     private World world;
-    private Map<Long, ChunkMesh> chunkMeshes = new HashMap<>();
+    private ChunkStorage chunkStorage;
+    private ChunkStreamer chunkStreamer;
+    private ChunkMesher.Mode meshingMode = ChunkMesher.Mode.GREEDY;
+    private VertexFormat vertexFormat = VertexFormat.PACKED;
+    private ChunkMeshPipeline meshPipeline;
+    private ChunkArena chunkArena;
+
+    private final FrameTelemetry telemetry = new FrameTelemetry();
+    private GpuTimer gpuTimer;
+    private OcclusionCuller occlusionCuller;
+
+    private final FrustumIntersection frustum = new FrustumIntersection();
+    private int chunksDrawn;
+    private int chunksCulled;
+    private int chunksOccluded;
+
+    // Per-frame scratch, reused so the render loop allocates nothing in steady state
+    private final Matrix4f projection = new Matrix4f();
+    private final Matrix4f view = new Matrix4f();
+    private final Matrix4f viewProjection = new Matrix4f();
+    private final Vector3f cameraTarget = new Vector3f();
+
+    private final Vector3f lightDir = new Vector3f(-0.2f, -1.0f, -0.3f).normalize();
+    private final Vector3f lightColor = new Vector3f(1.0f, 1.0f, 1.0f);
+    private final Vector3f ambientColor = new Vector3f(0.3f, 0.3f, 0.3f);
+
+    // Uniform locations, looked up once after the shader is linked
+    private int uViewProjectionLocation;
+    private int textureSamplerLocation;
+    private int lightDirLocation;
+    private int lightColorLocation;
+    private int ambientColorLocation;
+
+    // Time the render thread may spend uploading finished meshes each frame
+    private static final long UPLOAD_BUDGET_NANOS = 2_000_000L;
+
+    // World height in chunks
+    private static final int WORLD_HEIGHT = 8;
+
+    // Radius in chunk columns that is kept meshed around the camera, and how far past it a column may go before unloading
+    private static final int VIEW_DISTANCE = 8;
+    private static final int UNLOAD_HYSTERESIS = 2;
+
+    // Chunks closer than this many blocks are drawn at full detail; each coarser level of detail covers twice the distance of the previous one
+    private static final float LOD_BASE_DISTANCE = 48.0f;
+
+    // Starting and smallest size of the shared chunk vertex buffer; it is compacted when fragmented and doubles when full
+    private static final int ARENA_INITIAL_VERTICES = 1 << 20;
+
+    // Side of each block texture layer in texels; images of other sizes are resampled to it
+    private static final int BLOCK_TEXTURE_SIZE = 64;
 
     private Vector3f cameraPos = new Vector3f(8, 20, 20);
     private Vector3f cameraFront = new Vector3f(0, -0.5f, -1).normalize();
     private Vector3f cameraUp = new Vector3f(0, 1, 0);
 
+    // How far away a block can be broken or placed, in blocks
+    private static final float REACH_DISTANCE = 8.0f;
+    private final RaycastHit pickHit = new RaycastHit();
+
     private GLFWWindowSizeCallback windowSizeCallback;
+    private GLFWMouseButtonCallback mouseButtonCallback;
 
     public void run() throws IOException {
         init();
         loop();
 
+        chunkStreamer.cleanup();
+        meshPipeline.shutdown();
+        // Queue every edited chunk, then wait for the saver to write them all out
+        world.saveAll();
+        chunkStorage.close();
+        System.out.printf("Saved %d chunks%n", chunkStorage.getChunksSaved());
+        chunkArena.cleanup();
+        blockTextures.cleanup();
+        gpuTimer.cleanup();
+        occlusionCuller.cleanup();
+        telemetry.close();
+        QuadIndexBuffer.cleanup();
+
         if (windowSizeCallback != null) {
             windowSizeCallback.free();
         }
+        if (mouseButtonCallback != null) {
+            mouseButtonCallback.free();
+        }
 
         glfwDestroyWindow(window);
         glfwTerminate();
@@ -51,6 +122,11 @@ public class Main {
         glfwDefaultWindowHints();
         glfwWindowHint(GLFW_VISIBLE, GLFW_FALSE);
         glfwWindowHint(GLFW_RESIZABLE, GLFW_TRUE);
+        // 4.3 for glMultiDrawElementsIndirect with base instances
+        glfwWindowHint(GLFW_CONTEXT_VERSION_MAJOR, 4);
+        glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, 3);
+        glfwWindowHint(GLFW_OPENGL_PROFILE, GLFW_OPENGL_CORE_PROFILE);
+        glfwWindowHint(GLFW_OPENGL_FORWARD_COMPAT, GLFW_TRUE);
 
         window = glfwCreateWindow(width, height, "Voxel World", 0, 0);
         if (window == 0) {
@@ -72,28 +148,45 @@ public class Main {
         };
         glfwSetWindowSizeCallback(window, windowSizeCallback);
 
-        GL.createCapabilities();
-        glClearColor(0.5f, 0.7f, 1.0f, 1.0f); // light sky blue background
-
-        shaderProgram = new ShaderProgram("src/main/resources/shaders/vertex.glsl", "src/main/resources/shaders/fragment.glsl");
-        grassTexture = new Texture("src/main/resources/textures/grass.png");
-
-        world = new World(16, 8, 16); // Adjusted height to 8 chunks for example
-
-        for (int cx = -1; cx <= 1; cx++) {
-            for (int cz = -1; cz <= 1; cz++) {
-                Chunk chunk = world.getChunk(cx + 8, 0, cz + 8); // offset to center if needed
-                if (chunk != null) {
-                    ChunkMesh mesh = new ChunkMesh(chunk);
-                    chunkMeshes.put(getChunkKey(chunk.chunkX, chunk.chunkY, chunk.chunkZ), mesh);
+        // Left click breaks the block under the crosshair, right click places stone against it
+        mouseButtonCallback = new GLFWMouseButtonCallback() {
+            @Override
+            public void invoke(long window, int button, int action, int mods) {
+                if (action != GLFW_PRESS) return;
+                if (button == GLFW_MOUSE_BUTTON_LEFT) {
+                    breakBlock();
+                } else if (button == GLFW_MOUSE_BUTTON_RIGHT) {
+                    placeBlock(Block.STONE);
                 }
             }
-        }
+        };
+        glfwSetMouseButtonCallback(window, mouseButtonCallback);
 
-        // Set spawn point on terrain at chunk (0,0)
-        int spawnChunkX = 0;
-        int spawnChunkZ = 0;
-        int spawnHeight = world.generateHeight(spawnChunkX, spawnChunkZ);
+        GL.createCapabilities();
+        glClearColor(0.5f, 0.7f, 1.0f, 1.0f); // light sky blue background
+
+        shaderProgram = new ShaderProgram("src/main/resources/shaders/vertex.glsl", "src/main/resources/shaders/fragment.glsl",
+                vertexFormat.getShaderDefine());
+        uViewProjectionLocation = shaderProgram.getUniformLocation("uViewProjection");
+        textureSamplerLocation = shaderProgram.getUniformLocation("textureSampler");
+        lightDirLocation = shaderProgram.getUniformLocation("lightDir");
+        lightColorLocation = shaderProgram.getUniformLocation("lightColor");
+        ambientColorLocation = shaderProgram.getUniformLocation("ambientColor");
+        blockTextures = new BlockTextures("src/main/resources/textures", "grass", BLOCK_TEXTURE_SIZE);
+
+        chunkStorage = new ChunkStorage(Paths.get("saves", "world"), WORLD_HEIGHT);
+        world = new World(WORLD_HEIGHT, chunkStorage);
+        meshPipeline = new ChunkMeshPipeline(world, meshingMode, vertexFormat);
+        chunkArena = new ChunkArena(vertexFormat, ARENA_INITIAL_VERTICES);
+        gpuTimer = new GpuTimer();
+        occlusionCuller = new OcclusionCuller();
+        chunkStreamer = new ChunkStreamer(world, chunkArena, VIEW_DISTANCE, UNLOAD_HYSTERESIS);
+
+        // Chunks are generated on first access; get the area around spawn done up front across all cores
+        world.pregenerate(-VIEW_DISTANCE, -VIEW_DISTANCE, VIEW_DISTANCE, VIEW_DISTANCE);
+
+        // Set spawn point on terrain in the middle of chunk (0,0); the heightmap is already cached from pregeneration
+        int spawnHeight = world.getTerrainHeight(8, 8);
         cameraPos.set(8, spawnHeight + 2, 8); // spawn slightly above ground
         cameraFront.set(0, -0.5f, -1).normalize();
         cameraUp.set(0, 1, 0);
@@ -104,41 +197,175 @@ public class Main {
 
     private void loop() {
         while (!glfwWindowShouldClose(window)) {
+            telemetry.beginFrame();
             glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
 
-            Matrix4f projection = new Matrix4f().perspective(org.joml.Math.toRadians(70.0f), (float) width / height, 0.1f, 1000.0f);
-            Matrix4f view = new Matrix4f().lookAt(cameraPos, new Vector3f(cameraPos).add(cameraFront), cameraUp);
+            telemetry.begin(FrameTelemetry.Stage.UPDATE);
+            chunkStreamer.update(cameraPos);
+            meshPipeline.submitDirty();
+
+            projection.setPerspective(org.joml.Math.toRadians(70.0f), (float) width / height, 0.1f, 1000.0f);
+            view.setLookAt(cameraPos, cameraPos.add(cameraFront, cameraTarget), cameraUp);
+            projection.mul(view, viewProjection);
+            frustum.set(viewProjection);
+            telemetry.end(FrameTelemetry.Stage.UPDATE);
+
+            telemetry.begin(FrameTelemetry.Stage.UPLOAD);
+            telemetry.countMeshesBuilt(meshPipeline.uploadCompleted(UPLOAD_BUDGET_NANOS));
+            telemetry.end(FrameTelemetry.Stage.UPLOAD);
+
+            telemetry.begin(FrameTelemetry.Stage.CULL);
+            chunksDrawn = 0;
+            chunksCulled = 0;
+            chunksOccluded = 0;
+            occlusionCuller.beginFrame(cameraPos);
+            List<ChunkMesh> meshes = chunkStreamer.getMeshes();
+            chunkArena.beginBatch();
+            for (int i = 0; i < meshes.size(); i++) {
+                ChunkMesh mesh = meshes.get(i);
+                Chunk chunk = mesh.getChunk();
+
+                // Block centers sit on integer coordinates, so a chunk spans -0.5 to size - 0.5 from its origin
+                float minX = chunk.chunkX * chunk.width - 0.5f;
+                float minY = chunk.chunkY * chunk.height - 0.5f;
+                float minZ = chunk.chunkZ * chunk.depth - 0.5f;
+                float maxX = minX + chunk.width, maxY = minY + chunk.height, maxZ = minZ + chunk.depth;
+
+                // Meshes every level of detail the first time it's wanted; until then a cached level stands in
+                int level = selectLevel(minX, minY, minZ, maxX, maxY, maxZ);
+                meshPipeline.request(mesh, level);
+                int drawLevel = mesh.getDrawLevel(level);
+                if (drawLevel < 0 || !mesh.hasGeometry(drawLevel)) continue;
+
+                if (!frustum.testAab(minX, minY, minZ, maxX, maxY, maxZ)) {
+                    chunksCulled++;
+                    continue;
+                }
+                if (occlusionCuller.isOccluded(mesh, minX, minY, minZ, maxX, maxY, maxZ)) {
+                    chunksOccluded++;
+                    continue;
+                }
+                chunksDrawn++;
+
+                chunkArena.addDraw(mesh, drawLevel, chunk.chunkX * chunk.width, chunk.chunkY * chunk.height, chunk.chunkZ * chunk.depth);
+            }
+            telemetry.end(FrameTelemetry.Stage.CULL);
 
+            telemetry.begin(FrameTelemetry.Stage.DRAW);
+            // Everything that is the same for every chunk goes up once per frame
             shaderProgram.use();
-            shaderProgram.setUniform1i("textureSampler", 0);
+            shaderProgram.setUniformMat4(uViewProjectionLocation, viewProjection);
+            shaderProgram.setUniform1i(textureSamplerLocation, 0);
+            shaderProgram.setUniformVec3(lightDirLocation, lightDir);
+            shaderProgram.setUniformVec3(lightColorLocation, lightColor);
+            shaderProgram.setUniformVec3(ambientColorLocation, ambientColor);
+
+            glActiveTexture(GL_TEXTURE0);
+            blockTextures.bind();
+
+            gpuTimer.begin();
+            chunkArena.drawBatch();
+            gpuTimer.end();
+            // Tests boxes against the depth the chunks just wrote; the answers are used a few frames from now
+            occlusionCuller.drawTests(viewProjection);
+            telemetry.end(FrameTelemetry.Stage.DRAW);
+
+            // The whole chunk batch is one multi-draw; each occlusion box is a draw of its own
+            int drawCalls = (chunkArena.getDrawCount() > 0 ? 1 : 0) + occlusionCuller.getLastTestCount();
+            telemetry.countDraws(drawCalls, chunkArena.getDrawCount(), chunkArena.getTriangleCount());
+            telemetry.countCulled(chunksCulled, chunksOccluded);
+            telemetry.setChunksResident(meshes.size());
+            telemetry.setSaveQueue(chunkStorage.getQueueDepth(), chunkStorage.getChunksPerSecond());
+            telemetry.endFrame(gpuTimer.getLastNanos());
 
-            for (Map.Entry<Long, ChunkMesh> entry : chunkMeshes.entrySet()) {
-                ChunkMesh mesh = entry.getValue();
-                Chunk chunk = mesh.getChunk();
+            glfwSwapBuffers(window);
+            glfwPollEvents();
+        }
+    }
 
-                Matrix4f model = new Matrix4f().translate(chunk.chunkX * chunk.width, chunk.chunkY * chunk.height, chunk.chunkZ * chunk.depth);
-                Matrix4f mvp = new Matrix4f(projection).mul(view).mul(model);
+    /**
+     * Level of detail for a chunk with the given bounds: 0 within
+     * {@link #LOD_BASE_DISTANCE} of the camera, one level coarser each time
+     * the distance doubles.
+     */
+    private int selectLevel(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        float dx = axisDistance(cameraPos.x, minX, maxX);
+        float dy = axisDistance(cameraPos.y, minY, maxY);
+        float dz = axisDistance(cameraPos.z, minZ, maxZ);
+        float distanceSq = dx * dx + dy * dy + dz * dz;
+
+        int level = 0;
+        float limit = LOD_BASE_DISTANCE;
+        while (level < ChunkMesh.LOD_LEVELS - 1 && distanceSq >= limit * limit) {
+            level++;
+            limit *= 2;
+        }
+        return level;
+    }
 
-                shaderProgram.setUniformMat4("uMVP", mvp);
-                shaderProgram.setUniformMat4("uModel", model);
+    private static float axisDistance(float p, float min, float max) {
+        return p < min ? min - p : p > max ? p - max : 0;
+    }
 
-                shaderProgram.setUniformVec3("lightDir", new Vector3f(-0.2f, -1.0f, -0.3f).normalize());
-                shaderProgram.setUniformVec3("lightColor", new Vector3f(1.0f, 1.0f, 1.0f));
-                shaderProgram.setUniformVec3("ambientColor", new Vector3f(0.3f, 0.3f, 0.3f));
+    /** Chunks with geometry that passed frustum and occlusion culling in the last frame. */
+    public int getChunksDrawn() {
+        return chunksDrawn;
+    }
 
-                glActiveTexture(GL_TEXTURE0);
-                grassTexture.bind();
+    /** Chunks with geometry that were outside the view frustum in the last frame. */
+    public int getChunksCulled() {
+        return chunksCulled;
+    }
 
-                mesh.render();
-            }
+    /** Chunks in the view frustum skipped in the last frame because terrain hid them. */
+    public int getChunksOccluded() {
+        return chunksOccluded;
+    }
 
-            glfwSwapBuffers(window);
-            glfwPollEvents();
+    /** Removes the block the camera is looking at, if one is within reach. */
+    public void breakBlock() {
+        if (VoxelRaycast.cast(world, cameraPos, cameraFront, REACH_DISTANCE, pickHit)) {
+            setBlock(pickHit.getBlockX(), pickHit.getBlockY(), pickHit.getBlockZ(), Block.AIR);
         }
     }
 
-    private long getChunkKey(int x, int y, int z) {
-        return (((long) x & 0xFFFFFL) << 40) | (((long) y & 0xFFFFFL) << 20) | ((long) z & 0xFFFFFL);
+    /** Puts a block against the face of the block the camera is looking at, if one is within reach. */
+    public void placeBlock(byte blockId) {
+        if (!VoxelRaycast.cast(world, cameraPos, cameraFront, REACH_DISTANCE, pickHit)) return;
+        // A ray that starts inside a block has no face to place against
+        if (pickHit.getFaceX() == 0 && pickHit.getFaceY() == 0 && pickHit.getFaceZ() == 0) return;
+        setBlock(pickHit.getBlockX() + pickHit.getFaceX(), pickHit.getBlockY() + pickHit.getFaceY(),
+                pickHit.getBlockZ() + pickHit.getFaceZ(), blockId);
+    }
+
+    /**
+     * Changes a block and marks its chunk for remeshing, plus any loaded neighbor
+     * whose touching face the block sits on, since that neighbor's culling depended
+     * on it. Every chunk marked during a frame is remeshed once, next frame.
+     * Render thread only.
+     */
+    public void setBlock(int worldX, int worldY, int worldZ, byte blockId) {
+        Chunk chunk = world.setBlock(worldX, worldY, worldZ, blockId);
+        if (chunk == null) return;
+
+        remesh(chunk.chunkX, chunk.chunkY, chunk.chunkZ);
+
+        int lx = worldX - chunk.chunkX * chunk.width;
+        int ly = worldY - chunk.chunkY * chunk.height;
+        int lz = worldZ - chunk.chunkZ * chunk.depth;
+        if (lx == 0) remesh(chunk.chunkX - 1, chunk.chunkY, chunk.chunkZ);
+        if (lx == chunk.width - 1) remesh(chunk.chunkX + 1, chunk.chunkY, chunk.chunkZ);
+        if (ly == 0) remesh(chunk.chunkX, chunk.chunkY - 1, chunk.chunkZ);
+        if (ly == chunk.height - 1) remesh(chunk.chunkX, chunk.chunkY + 1, chunk.chunkZ);
+        if (lz == 0) remesh(chunk.chunkX, chunk.chunkY, chunk.chunkZ - 1);
+        if (lz == chunk.depth - 1) remesh(chunk.chunkX, chunk.chunkY, chunk.chunkZ + 1);
+    }
+
+    private void remesh(int chunkX, int chunkY, int chunkZ) {
+        ChunkMesh mesh = chunkStreamer.getMesh(chunkX, chunkY, chunkZ);
+        if (mesh != null) {
+            meshPipeline.markDirty(mesh);
+        }
     }
 
     public static void main(String[] args) {
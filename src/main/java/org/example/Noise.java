@@ -1,81 +1,72 @@
 package org.example;
 
+import java.util.Random;
+
+/**
+ * Seeded 2D and 3D simplex noise in [-1, 1]. The permutation table is shuffled
+ * from the seed, so the same seed always gives the same noise and chunks can
+ * be regenerated rather than stored. Instances are immutable and can be
+ * shared by any number of threads.
+ * <p>
+ * {@link #noise(double[], double, double, double, int, int)} fills a whole 2D
+ * grid at once and uses the JDK Vector API when the {@code jdk.incubator.vector}
+ * module is present; it returns exactly the same values as calling
+ * {@link #noise(double, double)} per sample.
+ */
 public class Noise {
+    // Gradient i is (GRAD_X[i], GRAD_Y[i], GRAD_Z[i]), the 12 cube edge midpoints; 2D uses x and y only
+    static final double[] GRAD_X = {1, -1, 1, -1, 1, -1, 1, -1, 0, 0, 0, 0};
+    static final double[] GRAD_Y = {1, 1, -1, -1, 0, 0, 0, 0, 1, -1, 1, -1};
+    static final double[] GRAD_Z = {0, 0, 0, 0, 1, 1, -1, -1, 1, 1, -1, -1};
 
-    private static final int PERMUTATION[] = {
-        151,160,137,91,90,15,
-        131,13,201,95,96,53,194,233,7,225,
-        140,36,103,30,69,142,8,99,37,240,
-        21,10,23,190,6,148,247,120,234,75,
-        0,26,197,62,94,252,219,203,117,35,
-        11,32,57,177,33,88,237,149,56,87,
-        174,20,125,136,171,168,68,175,74,165,
-        71,134,139,48,27,166,77,146,158,231,
-        83,111,229,122,60,211,133,230,220,105,
-        92,41,55,46,245,40,244,102,143,54,
-        65,25,63,161,1,216,80,73,209,76,
-        132,187,208,89,18,169,200,196,135,130,
-        116,188,159,86,164,100,109,198,173,186,
-        3,64,52,217,226,250,124,123,5,202,
-        38,147,118,126,255,82,85,212,207,206,
-        59,227,47,16,58,17,182,189,28,42,
-        223,183,170,213,119,248,152,2,44,154,
-        163,70,221,153,101,155,167,43,172,9,
-        129,22,39,253,19,98,108,110,79,113,
-        224,232,178,185,112,104,218,246,97,228,
-        251,34,242,193,238,210,144,12,191,179,
-        162,241,81,51,145,235,249,14,239,107,
-        49,192,214,31,181,199,106,157,184,84,
-        204,176,115,121,50,45,127,4,150,254,
-        138,236,205,93,222,114,67,29,24,72,
-        243,141,128,195,78,66,215,61,156,180,
-        // repeat to make 512 entries
-        151,160,137,91,90,15,
-        131,13,201,95,96,53,194,233,7,225,
-        140,36,103,30,69,142,8,99,37,240,
-        21,10,23,190,6,148,247,120,234,75,
-        0,26,197,62,94,252,219,203,117,35,
-        11,32,57,177,33,88,237,149,56,87,
-        174,20,125,136,171,168,68,175,74,165,
-        71,134,139,48,27,166,77,146,158,231,
-        83,111,229,122,60,211,133,230,220,105,
-        92,41,55,46,245,40,244,102,143,54,
-        65,25,63,161,1,216,80,73,209,76,
-        132,187,208,89,18,169,200,196,135,130,
-        116,188,159,86,164,100,109,198,173,186,
-        3,64,52,217,226,250,124,123,5,202,
-        38,147,118,126,255,82,85,212,207,206,
-        59,227,47,16,58,17,182,189,28,42,
-        223,183,170,213,119,248,152,2,44,154,
-        163,70,221,153,101,155,167,43,172,9,
-        129,22,39,253,19,98,108,110,79,113,
-        224,232,178,185,112,104,218,246,97,228,
-        251,34,242,193,238,210,144,12,191,179,
-        162,241,81,51,145,235,249,14,239,107,
-        49,192,214,31,181,199,106,157,184,84,
-        204,176,115,121,50,45,127,4,150,254,
-        138,236,205,93,222,114,67,29,24,72,
-        243,141,128,195,78,66,215,61,156,180
-    };
-
-    private static final int[][] grad3 = {
-        {1,1}, {-1,1}, {1,-1}, {-1,-1},
-        {1,0}, {-1,0}, {1,0}, {-1,0},
-        {0,1}, {0,-1}, {0,1}, {0,-1}
-    };
+    static final double F2 = 0.5 * (Math.sqrt(3.0) - 1.0);
+    static final double G2 = (3.0 - Math.sqrt(3.0)) / 6.0;
+    static final double G2_TWICE = 2.0 * G2;
 
-    private static int fastfloor(double x) {
-        return x > 0 ? (int) x : (int) x - 1;
+    private static final double F3 = 1.0 / 3.0;
+    private static final double G3 = 1.0 / 6.0;
+    private static final double G3_TWICE = 2.0 * G3;
+    private static final double G3_THRICE = 3.0 * G3;
+
+    private static final boolean VECTORIZED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private final long seed;
+
+    // A shuffle of 0..255, repeated so lookups can skip wrapping the sum of two entries
+    final int[] permutation = new int[512];
+    // permutation[k] % 12, i.e. the gradient index each entry selects
+    final int[] permMod12 = new int[512];
+
+    public Noise(long seed) {
+        this.seed = seed;
+
+        int[] shuffled = new int[256];
+        for (int k = 0; k < 256; k++) {
+            shuffled[k] = k;
+        }
+        Random random = new Random(seed);
+        for (int k = 255; k > 0; k--) {
+            int swap = random.nextInt(k + 1);
+            int tmp = shuffled[k];
+            shuffled[k] = shuffled[swap];
+            shuffled[swap] = tmp;
+        }
+
+        for (int k = 0; k < 512; k++) {
+            permutation[k] = shuffled[k & 255];
+            permMod12[k] = permutation[k] % 12;
+        }
     }
 
-    private static double dot(int[] g, double x, double y) {
-        return g[0] * x + g[1] * y;
+    public long getSeed() {
+        return seed;
     }
 
-    public static double noise(double xin, double yin) {
-        final double F2 = 0.5 * (Math.sqrt(3.0) - 1.0);
-        final double G2 = (3.0 - Math.sqrt(3.0)) / 6.0;
+    private static int fastfloor(double x) {
+        return x > 0 ? (int) x : (int) x - 1;
+    }
 
+    public double noise(double xin, double yin) {
         double s = (xin + yin) * F2;
         int i = fastfloor(xin + s);
         int j = fastfloor(yin + s);
@@ -97,27 +88,120 @@ public class Noise {
 
         double x1 = x0 - i1 + G2;
         double y1 = y0 - j1 + G2;
-        double x2 = x0 - 1.0 + 2.0 * G2;
-        double y2 = y0 - 1.0 + 2.0 * G2;
+        double x2 = x0 - 1.0 + G2_TWICE;
+        double y2 = y0 - 1.0 + G2_TWICE;
 
         int ii = i & 255;
         int jj = j & 255;
 
-        int gi0 = PERMUTATION[(ii + PERMUTATION[jj]) & 511] % 12;
-        int gi1 = PERMUTATION[(ii + i1 + PERMUTATION[(jj + j1) & 511]) & 511] % 12;
-        int gi2 = PERMUTATION[(ii + 1 + PERMUTATION[(jj + 1) & 511]) & 511] % 12;
+        int gi0 = permMod12[(ii + permutation[jj]) & 511];
+        int gi1 = permMod12[(ii + i1 + permutation[(jj + j1) & 511]) & 511];
+        int gi2 = permMod12[(ii + 1 + permutation[(jj + 1) & 511]) & 511];
 
         double n0, n1, n2;
 
         double t0 = 0.5 - x0 * x0 - y0 * y0;
-        n0 = (t0 < 0) ? 0.0 : Math.pow(t0, 4) * dot(grad3[gi0], x0, y0);
+        double t0sq = t0 * t0;
+        n0 = (t0 < 0) ? 0.0 : t0sq * t0sq * (GRAD_X[gi0] * x0 + GRAD_Y[gi0] * y0);
 
         double t1 = 0.5 - x1 * x1 - y1 * y1;
-        n1 = (t1 < 0) ? 0.0 : Math.pow(t1, 4) * dot(grad3[gi1], x1, y1);
+        double t1sq = t1 * t1;
+        n1 = (t1 < 0) ? 0.0 : t1sq * t1sq * (GRAD_X[gi1] * x1 + GRAD_Y[gi1] * y1);
 
         double t2 = 0.5 - x2 * x2 - y2 * y2;
-        n2 = (t2 < 0) ? 0.0 : Math.pow(t2, 4) * dot(grad3[gi2], x2, y2);
+        double t2sq = t2 * t2;
+        n2 = (t2 < 0) ? 0.0 : t2sq * t2sq * (GRAD_X[gi2] * x2 + GRAD_Y[gi2] * y2);
 
         return 70.0 * (n0 + n1 + n2);
     }
+
+    public double noise(double xin, double yin, double zin) {
+        double s = (xin + yin + zin) * F3;
+        int i = fastfloor(xin + s);
+        int j = fastfloor(yin + s);
+        int k = fastfloor(zin + s);
+
+        double t = (i + j + k) * G3;
+        double x0 = xin - (i - t);
+        double y0 = yin - (j - t);
+        double z0 = zin - (k - t);
+
+        // Which of the six tetrahedra of the skewed cube the point is in, as the offsets of its second and third corners
+        int i1, j1, k1;
+        int i2, j2, k2;
+        if (x0 >= y0) {
+            if (y0 >= z0) {
+                i1 = 1; j1 = 0; k1 = 0; i2 = 1; j2 = 1; k2 = 0;
+            } else if (x0 >= z0) {
+                i1 = 1; j1 = 0; k1 = 0; i2 = 1; j2 = 0; k2 = 1;
+            } else {
+                i1 = 0; j1 = 0; k1 = 1; i2 = 1; j2 = 0; k2 = 1;
+            }
+        } else {
+            if (y0 < z0) {
+                i1 = 0; j1 = 0; k1 = 1; i2 = 0; j2 = 1; k2 = 1;
+            } else if (x0 < z0) {
+                i1 = 0; j1 = 1; k1 = 0; i2 = 0; j2 = 1; k2 = 1;
+            } else {
+                i1 = 0; j1 = 1; k1 = 0; i2 = 1; j2 = 1; k2 = 0;
+            }
+        }
+
+        double x1 = x0 - i1 + G3;
+        double y1 = y0 - j1 + G3;
+        double z1 = z0 - k1 + G3;
+        double x2 = x0 - i2 + G3_TWICE;
+        double y2 = y0 - j2 + G3_TWICE;
+        double z2 = z0 - k2 + G3_TWICE;
+        double x3 = x0 - 1.0 + G3_THRICE;
+        double y3 = y0 - 1.0 + G3_THRICE;
+        double z3 = z0 - 1.0 + G3_THRICE;
+
+        int ii = i & 255;
+        int jj = j & 255;
+        int kk = k & 255;
+        int gi0 = permMod12[ii + permutation[jj + permutation[kk]]];
+        int gi1 = permMod12[ii + i1 + permutation[jj + j1 + permutation[kk + k1]]];
+        int gi2 = permMod12[ii + i2 + permutation[jj + j2 + permutation[kk + k2]]];
+        int gi3 = permMod12[ii + 1 + permutation[jj + 1 + permutation[kk + 1]]];
+
+        return 32.0 * (corner(gi0, x0, y0, z0) + corner(gi1, x1, y1, z1)
+                + corner(gi2, x2, y2, z2) + corner(gi3, x3, y3, z3));
+    }
+
+    private static double corner(int gradient, double x, double y, double z) {
+        double t = 0.6 - x * x - y * y - z * z;
+        if (t < 0) return 0.0;
+        double tSq = t * t;
+        return tSq * tSq * (GRAD_X[gradient] * x + GRAD_Y[gradient] * y + GRAD_Z[gradient] * z);
+    }
+
+    /**
+     * Samples a {@code w} x {@code h} grid into {@code out}, x fastest:
+     * {@code out[i + j * w] = noise(x0 + i * step, z0 + j * step)}.
+     */
+    public void noise(double[] out, double x0, double z0, double step, int w, int h) {
+        if (out.length < w * h) {
+            throw new IllegalArgumentException("Output holds " + out.length + " samples, need " + w * h);
+        }
+        if (VECTORIZED) {
+            NoiseVectorized.noise(this, out, x0, z0, step, w, h);
+        } else {
+            noiseScalar(out, x0, z0, step, w, h);
+        }
+    }
+
+    void noiseScalar(double[] out, double x0, double z0, double step, int w, int h) {
+        for (int j = 0; j < h; j++) {
+            double z = z0 + j * step;
+            for (int i = 0; i < w; i++) {
+                out[i + j * w] = noise(x0 + i * step, z);
+            }
+        }
+    }
+
+    /** Whether the batch API runs on the Vector API in this JVM. */
+    public static boolean isVectorized() {
+        return VECTORIZED;
+    }
 }
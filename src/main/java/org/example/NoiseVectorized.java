@@ -0,0 +1,162 @@
+package org.example;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+import static jdk.incubator.vector.VectorOperators.GT;
+import static jdk.incubator.vector.VectorOperators.LT;
+
+/**
+ * Vector API version of {@link Noise#noise(double[], double, double, double, int, int)}.
+ * Only loaded when the {@code jdk.incubator.vector} module is present.
+ * <p>
+ * Each row runs in three passes: find every sample's simplex cell in vector
+ * lanes, look up the three corner gradients per sample with scalar code
+ * (permutation chains don't vectorize), then load the gradients and sum
+ * the corner contributions in vector lanes again. Every lane performs the
+ * same operations in the same order as {@link Noise#noise(double, double)},
+ * so the results are bit-identical.
+ */
+final class NoiseVectorized {
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+    // Adding and subtracting 2^52 rounds any smaller non-negative double to an integer
+    private static final double ROUNDING_MAGIC = 0x1p52;
+    // Cell coordinates stay exact in doubles well below this; past it the scalar path's int casts take over
+    private static final double MAX_COORDINATE = 0x1p30;
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private NoiseVectorized() {
+    }
+
+    static void noise(Noise noise, double[] out, double x0, double z0, double step, int w, int h) {
+        double maxX = Math.max(Math.abs(x0), Math.abs(x0 + w * step));
+        double maxZ = Math.max(Math.abs(z0), Math.abs(z0 + h * step));
+        if (!(maxX < MAX_COORDINATE && maxZ < MAX_COORDINATE)) {
+            noise.noiseScalar(out, x0, z0, step, w, h);
+            return;
+        }
+
+        Scratch scratch = SCRATCH.get();
+        scratch.ensureCapacity(w);
+        double[] xs = scratch.xs;
+        for (int i = 0; i < w; i++) {
+            xs[i] = x0 + i * step;
+        }
+
+        int bound = DOUBLES.loopBound(w);
+        for (int j = 0; j < h; j++) {
+            double z = z0 + j * step;
+            findCells(scratch, z, bound);
+            lookUpGradients(noise, scratch, bound);
+            sumContributions(scratch, out, j * w, bound);
+
+            for (int i = bound; i < w; i++) {
+                out[i + j * w] = noise.noise(xs[i], z);
+            }
+        }
+    }
+
+    /** Skews each sample into its simplex cell and stores the cell and offset within it. */
+    private static void findCells(Scratch scratch, double z, int bound) {
+        DoubleVector yin = DoubleVector.broadcast(DOUBLES, z);
+        for (int k = 0; k < bound; k += DOUBLES.length()) {
+            DoubleVector xin = DoubleVector.fromArray(DOUBLES, scratch.xs, k);
+            DoubleVector s = xin.add(yin).mul(Noise.F2);
+            // Integer-valued doubles; exact, so they do the same arithmetic as the scalar path's ints
+            DoubleVector i = fastfloor(xin.add(s));
+            DoubleVector j = fastfloor(yin.add(s));
+
+            DoubleVector t = i.add(j).mul(Noise.G2);
+            DoubleVector cellX = i.sub(t);
+            DoubleVector cellY = j.sub(t);
+
+            i.intoArray(scratch.i, k);
+            j.intoArray(scratch.j, k);
+            xin.sub(cellX).intoArray(scratch.x0, k);
+            yin.sub(cellY).intoArray(scratch.y0, k);
+        }
+    }
+
+    /** Same as Noise.fastfloor: floor for positive x, truncate then subtract one otherwise. */
+    private static DoubleVector fastfloor(DoubleVector x) {
+        DoubleVector magnitude = x.abs();
+        DoubleVector rounded = magnitude.add(ROUNDING_MAGIC).sub(ROUNDING_MAGIC);
+        DoubleVector truncated = rounded.sub(1.0, rounded.compare(GT, magnitude));
+        return truncated.neg().sub(1.0).blend(truncated, x.compare(GT, 0.0));
+    }
+
+    /** Stores each corner's gradient, so the vector pass reads them contiguously instead of gathering. */
+    private static void lookUpGradients(Noise noise, Scratch scratch, int bound) {
+        int[] perm = noise.permutation;
+        int[] permMod12 = noise.permMod12;
+        for (int k = 0; k < bound; k++) {
+            int i1 = scratch.x0[k] > scratch.y0[k] ? 1 : 0;
+            int j1 = 1 - i1;
+            int ii = (int) scratch.i[k] & 255;
+            int jj = (int) scratch.j[k] & 255;
+            int gi0 = permMod12[(ii + perm[jj]) & 511];
+            int gi1 = permMod12[(ii + i1 + perm[(jj + j1) & 511]) & 511];
+            int gi2 = permMod12[(ii + 1 + perm[(jj + 1) & 511]) & 511];
+            scratch.gx0[k] = Noise.GRAD_X[gi0];
+            scratch.gy0[k] = Noise.GRAD_Y[gi0];
+            scratch.gx1[k] = Noise.GRAD_X[gi1];
+            scratch.gy1[k] = Noise.GRAD_Y[gi1];
+            scratch.gx2[k] = Noise.GRAD_X[gi2];
+            scratch.gy2[k] = Noise.GRAD_Y[gi2];
+        }
+    }
+
+    private static void sumContributions(Scratch scratch, double[] out, int offset, int bound) {
+        for (int k = 0; k < bound; k += DOUBLES.length()) {
+            DoubleVector x0 = DoubleVector.fromArray(DOUBLES, scratch.x0, k);
+            DoubleVector y0 = DoubleVector.fromArray(DOUBLES, scratch.y0, k);
+
+            VectorMask<Double> lowerTriangle = x0.compare(GT, y0);
+            DoubleVector i1 = DoubleVector.zero(DOUBLES).blend(1.0, lowerTriangle);
+            DoubleVector j1 = DoubleVector.broadcast(DOUBLES, 1.0).blend(0.0, lowerTriangle);
+
+            DoubleVector x1 = x0.sub(i1).add(Noise.G2);
+            DoubleVector y1 = y0.sub(j1).add(Noise.G2);
+            DoubleVector x2 = x0.sub(1.0).add(Noise.G2_TWICE);
+            DoubleVector y2 = y0.sub(1.0).add(Noise.G2_TWICE);
+
+            DoubleVector n0 = corner(x0, y0, scratch.gx0, scratch.gy0, k);
+            DoubleVector n1 = corner(x1, y1, scratch.gx1, scratch.gy1, k);
+            DoubleVector n2 = corner(x2, y2, scratch.gx2, scratch.gy2, k);
+            n0.add(n1).add(n2).mul(70.0).intoArray(out, offset + k);
+        }
+    }
+
+    private static DoubleVector corner(DoubleVector x, DoubleVector y, double[] gradX, double[] gradY, int k) {
+        DoubleVector gx = DoubleVector.fromArray(DOUBLES, gradX, k);
+        DoubleVector gy = DoubleVector.fromArray(DOUBLES, gradY, k);
+        DoubleVector t = DoubleVector.broadcast(DOUBLES, 0.5).sub(x.mul(x)).sub(y.mul(y));
+        DoubleVector tSq = t.mul(t);
+        DoubleVector n = tSq.mul(tSq).mul(gx.mul(x).add(gy.mul(y)));
+        return n.blend(0.0, t.compare(LT, 0.0));
+    }
+
+    private static final class Scratch {
+        double[] xs = new double[0];
+        double[] x0, y0;
+        double[] i, j, gx0, gy0, gx1, gy1, gx2, gy2;
+
+        void ensureCapacity(int w) {
+            if (xs.length >= w) return;
+            xs = new double[w];
+            x0 = new double[w];
+            y0 = new double[w];
+            i = new double[w];
+            j = new double[w];
+            gx0 = new double[w];
+            gy0 = new double[w];
+            gx1 = new double[w];
+            gy1 = new double[w];
+            gx2 = new double[w];
+            gy2 = new double[w];
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package org.example;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL11C.*;
+import static org.lwjgl.opengl.GL15C.*;
+import static org.lwjgl.opengl.GL30C.*;
+import static org.lwjgl.opengl.GL43C.*;
+
+/**
+ * Skips chunks hidden behind nearer terrain. After the frame's chunks are
+ * drawn, the bounding box of each chunk under test is drawn against the
+ * depth buffer inside a GL_ANY_SAMPLES_PASSED_CONSERVATIVE query, with color
+ * and depth writes off. A chunk whose box passed no samples is skipped until
+ * a later query sees it again.
+ * <p>
+ * Like {@link GpuTimer}, results are read a few frames late from a small ring
+ * and never waited on, so a chunk coming out from behind a hill can show up
+ * a frame or two late. Hidden chunks are tested every frame to keep that
+ * short; drawn ones only every {@link #VISIBLE_RETEST_INTERVAL} frames.
+ * Render thread only.
+ */
+public class OcclusionCuller {
+    private static final int FRAMES_IN_FLIGHT = 3;
+    private static final int VISIBLE_RETEST_INTERVAL = 4;
+    // A result older than this says nothing about where the camera is now, so the chunk counts as visible
+    private static final int MAX_RESULT_AGE = VISIBLE_RETEST_INTERVAL + FRAMES_IN_FLIGHT;
+    // Boxes this close to the camera may be cut by the near plane and pass no samples, so they're never culled
+    private static final float NEAR_MARGIN = 1.0f;
+    // Boxes are grown by this much so their faces sit just in front of terrain lying on the chunk bounds
+    private static final float BOX_EPSILON = 0.01f;
+    private static final int BOX_STRIP_VERTICES = 14;
+
+    private final ShaderProgram shader;
+    private final int viewProjectionLocation;
+    private final int boxMinLocation;
+    private final int boxSizeLocation;
+    private final int vaoId; // empty; the box comes from gl_VertexID
+
+    private final Batch[] batches = new Batch[FRAMES_IN_FLIGHT];
+    private int current;
+    private int frame;
+    private boolean testing; // false while this frame's batch is still waiting on results
+    private int lastTestCount;
+    private final Vector3f cameraPos = new Vector3f();
+
+    public OcclusionCuller() throws IOException {
+        shader = new ShaderProgram("src/main/resources/shaders/occlusion_vertex.glsl",
+                "src/main/resources/shaders/occlusion_fragment.glsl");
+        viewProjectionLocation = shader.getUniformLocation("uViewProjection");
+        boxMinLocation = shader.getUniformLocation("uBoxMin");
+        boxSizeLocation = shader.getUniformLocation("uBoxSize");
+        vaoId = glGenVertexArrays();
+        for (int i = 0; i < FRAMES_IN_FLIGHT; i++) {
+            batches[i] = new Batch();
+        }
+    }
+
+    /** Applies every query result that has come back. Call once per frame before {@link #isOccluded}. */
+    public void beginFrame(Vector3f cameraPos) {
+        this.cameraPos.set(cameraPos);
+        frame++;
+
+        // Oldest batch first, stopping at the first one still in flight since queries finish in order
+        for (int i = 0; i < FRAMES_IN_FLIGHT; i++) {
+            Batch batch = batches[(current + i) % FRAMES_IN_FLIGHT];
+            if (!batch.pending) continue;
+            if (batch.count > 0 && glGetQueryObjecti(batch.queries[batch.count - 1], GL_QUERY_RESULT_AVAILABLE) != GL_TRUE) {
+                break;
+            }
+            for (int j = 0; j < batch.count; j++) {
+                batch.meshes[j].setOccluded(glGetQueryObjecti(batch.queries[j], GL_QUERY_RESULT) == 0);
+                batch.meshes[j] = null;
+            }
+            batch.count = 0;
+            batch.pending = false;
+        }
+        testing = !batches[current].pending;
+    }
+
+    /**
+     * Whether the chunk with these bounds was hidden when last tested. Also
+     * schedules it for a test in this frame's {@link #drawTests} when due.
+     * Only call it for chunks inside the view frustum.
+     */
+    public boolean isOccluded(ChunkMesh mesh, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        if (cameraPos.x > minX - NEAR_MARGIN && cameraPos.x < maxX + NEAR_MARGIN
+                && cameraPos.y > minY - NEAR_MARGIN && cameraPos.y < maxY + NEAR_MARGIN
+                && cameraPos.z > minZ - NEAR_MARGIN && cameraPos.z < maxZ + NEAR_MARGIN) {
+            mesh.setOccluded(false);
+            return false;
+        }
+        if (frame - mesh.getOcclusionTestFrame() > MAX_RESULT_AGE) {
+            mesh.setOccluded(false);
+        }
+
+        boolean occluded = mesh.isOccluded();
+        if (testing && (occluded || frame - mesh.getOcclusionTestFrame() >= VISIBLE_RETEST_INTERVAL)) {
+            mesh.setOcclusionTestFrame(frame);
+            batches[current].add(mesh, minX, minY, minZ, maxX, maxY, maxZ);
+        }
+        return occluded;
+    }
+
+    /**
+     * Issues this frame's box queries. Call after the chunks are drawn, with
+     * the depth buffer they filled still bound.
+     */
+    public void drawTests(Matrix4f viewProjection) {
+        lastTestCount = 0;
+        if (!testing) return;
+        Batch batch = batches[current];
+        current = (current + 1) % FRAMES_IN_FLIGHT;
+        batch.pending = true;
+        if (batch.count == 0) return;
+        lastTestCount = batch.count;
+
+        glColorMask(false, false, false, false);
+        glDepthMask(false);
+        // A box face on a surface already drawn at the same depth must pass, or a visible chunk reads as hidden
+        glDepthFunc(GL_LEQUAL);
+        shader.use();
+        shader.setUniformMat4(viewProjectionLocation, viewProjection);
+        glBindVertexArray(vaoId);
+
+        float[] boxes = batch.boxes;
+        for (int i = 0; i < batch.count; i++) {
+            int b = i * 6;
+            shader.setUniformVec3(boxMinLocation, boxes[b] - BOX_EPSILON, boxes[b + 1] - BOX_EPSILON, boxes[b + 2] - BOX_EPSILON);
+            shader.setUniformVec3(boxSizeLocation, boxes[b + 3] - boxes[b] + 2 * BOX_EPSILON,
+                    boxes[b + 4] - boxes[b + 1] + 2 * BOX_EPSILON, boxes[b + 5] - boxes[b + 2] + 2 * BOX_EPSILON);
+            glBeginQuery(GL_ANY_SAMPLES_PASSED_CONSERVATIVE, batch.queries[i]);
+            glDrawArrays(GL_TRIANGLE_STRIP, 0, BOX_STRIP_VERTICES);
+            glEndQuery(GL_ANY_SAMPLES_PASSED_CONSERVATIVE);
+        }
+
+        glBindVertexArray(0);
+        glDepthFunc(GL_LESS);
+        glDepthMask(true);
+        glColorMask(true, true, true, true);
+    }
+
+    /** Boxes drawn by the last {@link #drawTests}, one draw call each. */
+    public int getLastTestCount() {
+        return lastTestCount;
+    }
+
+    public void cleanup() {
+        for (Batch batch : batches) {
+            glDeleteQueries(batch.queries);
+        }
+        glDeleteVertexArrays(vaoId);
+        shader.cleanup();
+    }
+
+    /** One frame's tests; queries are created as the batch grows and kept for reuse. */
+    private static final class Batch {
+        int[] queries = new int[0];
+        ChunkMesh[] meshes = new ChunkMesh[0];
+        float[] boxes = new float[0]; // min x, y, z then max x, y, z per test
+        int count;
+        boolean pending;
+
+        void add(ChunkMesh mesh, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+            if (count == queries.length) {
+                int capacity = Math.max(256, count * 2);
+                queries = Arrays.copyOf(queries, capacity);
+                int[] created = new int[capacity - count];
+                glGenQueries(created);
+                System.arraycopy(created, 0, queries, count, created.length);
+                meshes = Arrays.copyOf(meshes, capacity);
+                boxes = Arrays.copyOf(boxes, capacity * 6);
+            }
+            meshes[count] = mesh;
+            int b = count * 6;
+            boxes[b] = minX;
+            boxes[b + 1] = minY;
+            boxes[b + 2] = minZ;
+            boxes[b + 3] = maxX;
+            boxes[b + 4] = maxY;
+            boxes[b + 5] = maxZ;
+            count++;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.example;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.IntBuffer;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+
+/**
+ * Element buffer shared by every quad mesh. Quad {@code q} uses vertices
+ * {@code 4q..4q+3} and is drawn as triangles (0, 1, 2) and (2, 3, 0), so one
+ * pre-built index list serves all meshes. The buffer keeps the same GL name
+ * when it grows, which keeps it valid in every VAO it was bound into.
+ */
+public final class QuadIndexBuffer {
+    public static final int INDICES_PER_QUAD = 6;
+    public static final int VERTICES_PER_QUAD = 4;
+    public static final int INDEX_TYPE = GL_UNSIGNED_INT;
+
+    // A 16^3 checkerboard, the worst case for a chunk, exposes 12288 faces
+    private static final int INITIAL_QUADS = 16 * 16 * 16 * 3;
+
+    private static int eboId;
+    private static int capacity; // in quads
+
+    private QuadIndexBuffer() {
+    }
+
+    /**
+     * Binds the shared buffer to GL_ELEMENT_ARRAY_BUFFER of the current VAO,
+     * growing it first if it holds fewer than {@code quadCount} quads.
+     */
+    public static void bind(int quadCount) {
+        if (eboId == 0) {
+            eboId = glGenBuffers();
+        }
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, eboId);
+
+        if (quadCount > capacity) {
+            int newCapacity = Math.max(Math.max(INITIAL_QUADS, quadCount), capacity * 2);
+            IntBuffer indices = MemoryUtil.memAllocInt(newCapacity * INDICES_PER_QUAD);
+            for (int q = 0; q < newCapacity; q++) {
+                int base = q * VERTICES_PER_QUAD;
+                indices.put(base).put(base + 1).put(base + 2)
+                        .put(base + 2).put(base + 3).put(base);
+            }
+            indices.flip();
+            glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
+            MemoryUtil.memFree(indices);
+            capacity = newCapacity;
+        }
+    }
+
+    public static void cleanup() {
+        if (eboId != 0) {
+            glDeleteBuffers(eboId);
+            eboId = 0;
+            capacity = 0;
+        }
+    }
+}
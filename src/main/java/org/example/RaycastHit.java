@@ -0,0 +1,61 @@
+package org.example;
+
+/**
+ * Result of a {@link VoxelRaycast}. Meant to be reused between casts, so
+ * picking every frame allocates nothing.
+ */
+public class RaycastHit {
+    private int blockX, blockY, blockZ;
+    private byte blockId;
+    private int faceX, faceY, faceZ;
+    private float distance;
+
+    void set(int blockX, int blockY, int blockZ, byte blockId, int faceX, int faceY, int faceZ, float distance) {
+        this.blockX = blockX;
+        this.blockY = blockY;
+        this.blockZ = blockZ;
+        this.blockId = blockId;
+        this.faceX = faceX;
+        this.faceY = faceY;
+        this.faceZ = faceZ;
+        this.distance = distance;
+    }
+
+    /** World block coordinates of the block that was hit. */
+    public int getBlockX() {
+        return blockX;
+    }
+
+    public int getBlockY() {
+        return blockY;
+    }
+
+    public int getBlockZ() {
+        return blockZ;
+    }
+
+    public byte getBlockId() {
+        return blockId;
+    }
+
+    /**
+     * Outward normal of the face the ray entered through; adding it to the block
+     * position gives where a placed block goes. All zero if the ray started inside the block.
+     */
+    public int getFaceX() {
+        return faceX;
+    }
+
+    public int getFaceY() {
+        return faceY;
+    }
+
+    public int getFaceZ() {
+        return faceZ;
+    }
+
+    /** Distance along the ray to where it entered the block. */
+    public float getDistance() {
+        return distance;
+    }
+}
@@ -0,0 +1,152 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * One file holding the saved chunks of a 32x32 area of chunk columns.
+ * <p>
+ * The file starts with a header: magic, format version and world height,
+ * then an offset table with one entry per chunk slot giving its first
+ * sector and its payload length in bytes (0 when the chunk was never saved).
+ * Payloads live in 4 KiB sectors after the header. A rewritten payload stays
+ * in place when it still fits; otherwise it moves to the first free run of
+ * sectors, which may be at the end of the file.
+ * <p>
+ * The header is memory-mapped; payloads go through positional FileChannel
+ * reads and writes. All methods are synchronized, so loaders and the saver
+ * can share an instance.
+ */
+public class RegionFile {
+    public static final int SIZE = 32; // chunk columns per side
+
+    private static final int MAGIC = 0x56585247; // "VXRG"
+    private static final int FORMAT_VERSION = 1;
+    private static final int PREAMBLE_BYTES = 4 * Integer.BYTES; // magic, version, height, reserved
+    private static final int ENTRY_BYTES = 2 * Integer.BYTES;    // first sector, length
+    private static final int SECTOR_BYTES = 4096;
+
+    private final int height;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final int headerSectors;
+    private final BitSet usedSectors = new BitSet();
+
+    /** Opens the file at {@code path}, creating it if needed, for a world {@code height} chunks tall. */
+    public RegionFile(Path path, int height) throws IOException {
+        this.height = height;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        int headerBytes = PREAMBLE_BYTES + SIZE * SIZE * height * ENTRY_BYTES;
+        headerSectors = (headerBytes + SECTOR_BYTES - 1) / SECTOR_BYTES;
+        boolean created = channel.size() == 0;
+        // Mapping past the end grows a new file to hold the header
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) headerSectors * SECTOR_BYTES);
+
+        if (created) {
+            header.putInt(0, MAGIC);
+            header.putInt(4, FORMAT_VERSION);
+            header.putInt(8, height);
+        } else if (header.getInt(0) != MAGIC || header.getInt(4) != FORMAT_VERSION) {
+            channel.close();
+            throw new IOException("Not a version " + FORMAT_VERSION + " region file: " + path);
+        } else if (header.getInt(8) != height) {
+            channel.close();
+            throw new IOException("Region file " + path + " is for a world " + header.getInt(8)
+                    + " chunks tall, not " + height);
+        }
+
+        usedSectors.set(0, headerSectors);
+        for (int slot = 0; slot < SIZE * SIZE * height; slot++) {
+            int length = header.getInt(entryOffset(slot) + 4);
+            if (length > 0) {
+                int first = header.getInt(entryOffset(slot));
+                usedSectors.set(first, first + sectorsFor(length));
+            }
+        }
+    }
+
+    private int slot(int localX, int y, int localZ) {
+        return (localX + localZ * SIZE) * height + y;
+    }
+
+    private static int entryOffset(int slot) {
+        return PREAMBLE_BYTES + slot * ENTRY_BYTES;
+    }
+
+    private static int sectorsFor(int length) {
+        return (length + SECTOR_BYTES - 1) / SECTOR_BYTES;
+    }
+
+    /**
+     * Reads the payload saved for the chunk at region-local column (localX, localZ) and chunk y.
+     *
+     * @return the payload, or null if that chunk was never saved
+     */
+    public synchronized byte[] read(int localX, int y, int localZ) throws IOException {
+        int entry = entryOffset(slot(localX, y, localZ));
+        int length = header.getInt(entry + 4);
+        if (length == 0) {
+            return null;
+        }
+
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        long position = (long) header.getInt(entry) * SECTOR_BYTES;
+        while (payload.hasRemaining()) {
+            if (channel.read(payload, position + payload.position()) < 0) {
+                throw new IOException("Region file truncated in a chunk payload");
+            }
+        }
+        return payload.array();
+    }
+
+    /** Stores {@code length} bytes of {@code data} as the payload of the given chunk. */
+    public synchronized void write(int localX, int y, int localZ, byte[] data, int length) throws IOException {
+        int entry = entryOffset(slot(localX, y, localZ));
+        int first = header.getInt(entry);
+        int oldSectors = sectorsFor(header.getInt(entry + 4));
+        int sectors = sectorsFor(length);
+
+        if (sectors <= oldSectors) {
+            usedSectors.clear(first + sectors, first + oldSectors);
+        } else {
+            if (oldSectors > 0) {
+                usedSectors.clear(first, first + oldSectors);
+            }
+            first = findFreeRun(sectors);
+            usedSectors.set(first, first + sectors);
+        }
+
+        ByteBuffer payload = ByteBuffer.wrap(data, 0, length);
+        long position = (long) first * SECTOR_BYTES;
+        while (payload.hasRemaining()) {
+            channel.write(payload, position + payload.position());
+        }
+
+        // Payload first, then the table entry pointing at it
+        header.putInt(entry, first);
+        header.putInt(entry + 4, length);
+    }
+
+    private int findFreeRun(int sectors) {
+        int start = usedSectors.nextClearBit(headerSectors);
+        while (true) {
+            int end = usedSectors.nextSetBit(start);
+            if (end < 0 || end - start >= sectors) {
+                return start;
+            }
+            start = usedSectors.nextClearBit(end);
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        header.force();
+        channel.force(false);
+        channel.close();
+    }
+}
@@ -11,14 +11,22 @@ import java.util.Map;
 
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
+import org.lwjgl.system.MemoryStack;
 
 public class ShaderProgram {
     private final int programId;
     private final Map<String, Integer> uniformLocations = new HashMap<>();
 
     public ShaderProgram(String vertexPath, String fragmentPath) throws IOException {
-        int vertexShader = loadShader(vertexPath, GL_VERTEX_SHADER);
-        int fragmentShader = loadShader(fragmentPath, GL_FRAGMENT_SHADER);
+        this(vertexPath, fragmentPath, new String[0]);
+    }
+
+    /**
+     * @param defines preprocessor symbols injected after the #version line of both stages; nulls are skipped
+     */
+    public ShaderProgram(String vertexPath, String fragmentPath, String... defines) throws IOException {
+        int vertexShader = loadShader(vertexPath, GL_VERTEX_SHADER, defines);
+        int fragmentShader = loadShader(fragmentPath, GL_FRAGMENT_SHADER, defines);
 
         programId = glCreateProgram();
         glAttachShader(programId, vertexShader);
@@ -33,8 +41,8 @@ public class ShaderProgram {
         glDeleteShader(fragmentShader);
     }
 
-    private int loadShader(String filePath, int type) throws IOException {
-        String source = new String(Files.readAllBytes(Paths.get(filePath)));
+    private int loadShader(String filePath, int type, String... defines) throws IOException {
+        String source = injectDefines(new String(Files.readAllBytes(Paths.get(filePath))), defines);
         int shader = glCreateShader(type);
         glShaderSource(shader, source);
         glCompileShader(shader);
@@ -46,11 +54,30 @@ public class ShaderProgram {
         return shader;
     }
 
+    private static String injectDefines(String source, String... defines) {
+        StringBuilder header = new StringBuilder();
+        for (String define : defines) {
+            if (define != null) {
+                header.append("#define ").append(define).append('\n');
+            }
+        }
+        if (header.length() == 0) {
+            return source;
+        }
+        // #version must stay the first line, so the defines go right after it
+        int versionEnd = source.startsWith("#version") ? source.indexOf('\n') + 1 : 0;
+        return source.substring(0, versionEnd) + header + source.substring(versionEnd);
+    }
+
     public void use() {
         glUseProgram(programId);
     }
 
-    private int getUniformLocation(String name) {
+    /**
+     * Looks up (and caches) a uniform's location. Resolve locations once and use
+     * the int overloads on hot paths; the name-based setters box on every call.
+     */
+    public int getUniformLocation(String name) {
         if (uniformLocations.containsKey(name)) {
             return uniformLocations.get(name);
         }
@@ -78,11 +105,32 @@ public class ShaderProgram {
 	}
 
     public void setUniformMat4(String name, Matrix4f matrix) {
-        int location = getUniformLocation(name);
+        setUniformMat4(getUniformLocation(name), matrix);
+    }
+
+    public void setUniform1i(int location, int value) {
+        if (location >= 0) {
+            glUniform1i(location, value);
+        }
+    }
+
+    public void setUniformVec3(int location, Vector3f vec) {
+        if (location >= 0) {
+            glUniform3f(location, vec.x, vec.y, vec.z);
+        }
+    }
+
+    public void setUniformVec3(int location, float x, float y, float z) {
+        if (location >= 0) {
+            glUniform3f(location, x, y, z);
+        }
+    }
+
+    public void setUniformMat4(int location, Matrix4f matrix) {
         if (location >= 0) {
-            float[] matArray = new float[16];
-            matrix.get(matArray);
-            glUniformMatrix4fv(location, false, matArray);
+            try (MemoryStack stack = MemoryStack.stackPush()) {
+                glUniformMatrix4fv(location, false, matrix.get(stack.mallocFloat(16)));
+            }
         }
     }
 
@@ -0,0 +1,71 @@
+package org.example;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Growable off-heap vertex buffer that mesh emitters write into directly.
+ * The backing memory is handed straight to glBufferData, so building a mesh
+ * never boxes a float or copies the vertex data on the Java heap.
+ */
+public class VertexBuilder {
+    private ByteBuffer data;
+    private int size; // bytes written
+    private VertexFormat format;
+
+    public VertexBuilder(VertexFormat format, int initialVertexCapacity) {
+        this.format = format;
+        data = MemoryUtil.memAlloc(Math.max(1, initialVertexCapacity) * format.getBytesPerVertex());
+    }
+
+    public void vertex(float x, float y, float z,
+                       float nx, float ny, float nz,
+                       float u, float v, float layer) {
+        int stride = format.getBytesPerVertex();
+        ensureCapacity(stride);
+        format.write(data, size, x, y, z, nx, ny, nz, u, v, layer);
+        size += stride;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > data.capacity()) {
+            int newCapacity = Math.max(data.capacity() * 2, size + extra);
+            data = MemoryUtil.memRealloc(data, newCapacity);
+        }
+    }
+
+    /** Discards the written vertices but keeps the allocated memory for reuse. */
+    public void reset() {
+        size = 0;
+    }
+
+    /** Discards the written vertices and switches the layout used for the next ones. */
+    public void reset(VertexFormat format) {
+        this.format = format;
+        size = 0;
+    }
+
+    public VertexFormat getFormat() {
+        return format;
+    }
+
+    public int getVertexCount() {
+        return size / format.getBytesPerVertex();
+    }
+
+    public int getSizeInBytes() {
+        return size;
+    }
+
+    /** Address of the first vertex, suitable for nglBufferData. */
+    public long getAddress() {
+        return MemoryUtil.memAddress(data);
+    }
+
+    public void free() {
+        MemoryUtil.memFree(data);
+        data = null;
+        size = 0;
+    }
+}
@@ -0,0 +1,113 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * Chunk vertex layouts. Each format knows how to encode a vertex into a
+ * {@link VertexBuilder} and how to describe itself to the vertex shader.
+ */
+public enum VertexFormat {
+    /**
+     * 9 floats (36 bytes): pos(3), normal(3), uv(2) in block units, layer(1).
+     */
+    FLOAT(9 * Float.BYTES, null) {
+        @Override
+        void write(ByteBuffer buf, int offset,
+                   float x, float y, float z,
+                   float nx, float ny, float nz,
+                   float u, float v, float layer) {
+            buf.putFloat(offset, x);
+            buf.putFloat(offset + 4, y);
+            buf.putFloat(offset + 8, z);
+            buf.putFloat(offset + 12, nx);
+            buf.putFloat(offset + 16, ny);
+            buf.putFloat(offset + 20, nz);
+            buf.putFloat(offset + 24, u);
+            buf.putFloat(offset + 28, v);
+            buf.putFloat(offset + 32, layer);
+        }
+
+        @Override
+        void setupAttributes() {
+            int stride = getBytesPerVertex();
+
+            // Position attribute (location 0): 3 floats, offset 0
+            glVertexAttribPointer(0, 3, GL_FLOAT, false, stride, 0);
+            glEnableVertexAttribArray(0);
+
+            // Normal attribute (location 2): 3 floats, offset 3 floats
+            glVertexAttribPointer(2, 3, GL_FLOAT, false, stride, 3 * Float.BYTES);
+            glEnableVertexAttribArray(2);
+
+            // Texture coordinates attribute (location 1): 2 floats in block units, offset 6 floats
+            glVertexAttribPointer(1, 2, GL_FLOAT, false, stride, 6 * Float.BYTES);
+            glEnableVertexAttribArray(1);
+
+            // Texture array layer attribute (location 3): 1 float, offset 8 floats
+            glVertexAttribPointer(3, 1, GL_FLOAT, false, stride, 8 * Float.BYTES);
+            glEnableVertexAttribArray(3);
+        }
+    },
+
+    /**
+     * Two 32-bit words (8 bytes). Word 0 holds the corner position shifted by
+     * +0.5 so it lands on integers (5 bits per axis), the normal as an index
+     * into the six axis directions (3 bits) and the block-space UV (5 bits per
+     * axis). Word 1 holds the texture array layer in its low 8 bits. Decoded in
+     * vertex.glsl under {@code PACKED_VERTICES}; requires chunk sides of at
+     * most 31 blocks.
+     */
+    PACKED(2 * Integer.BYTES, "PACKED_VERTICES") {
+        @Override
+        void write(ByteBuffer buf, int offset,
+                   float x, float y, float z,
+                   float nx, float ny, float nz,
+                   float u, float v, float layer) {
+            int normal = nx != 0 ? (nx > 0 ? 0 : 1) : ny != 0 ? (ny > 0 ? 2 : 3) : (nz > 0 ? 4 : 5);
+            int word0 = (int) (x + 0.5f)
+                    | (int) (y + 0.5f) << 5
+                    | (int) (z + 0.5f) << 10
+                    | normal << 15
+                    | (int) u << 18
+                    | (int) v << 23;
+            buf.putInt(offset, word0);
+            buf.putInt(offset + 4, (int) layer & 0xFF);
+        }
+
+        @Override
+        void setupAttributes() {
+            // Packed attribute (location 0): 2 unsigned ints, read as integers
+            glVertexAttribIPointer(0, 2, GL_UNSIGNED_INT, getBytesPerVertex(), 0);
+            glEnableVertexAttribArray(0);
+        }
+    };
+
+    private final int bytesPerVertex;
+    private final String shaderDefine;
+
+    VertexFormat(int bytesPerVertex, String shaderDefine) {
+        this.bytesPerVertex = bytesPerVertex;
+        this.shaderDefine = shaderDefine;
+    }
+
+    public int getBytesPerVertex() {
+        return bytesPerVertex;
+    }
+
+    /** Preprocessor symbol the shaders need for this format, or null for the default layout. */
+    public String getShaderDefine() {
+        return shaderDefine;
+    }
+
+    abstract void write(ByteBuffer buf, int offset,
+                        float x, float y, float z,
+                        float nx, float ny, float nz,
+                        float u, float v, float layer);
+
+    /** Describes the layout to the currently bound VAO and ARRAY_BUFFER. */
+    abstract void setupAttributes();
+}
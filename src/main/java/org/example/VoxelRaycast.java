@@ -0,0 +1,115 @@
+package org.example;
+
+import org.joml.Vector3f;
+
+/**
+ * Finds the first solid block along a ray with the Amanatides & Woo voxel
+ * traversal: the ray steps from block to block across whichever block
+ * boundary it reaches first, so every block it passes through is visited
+ * exactly once, in order, with no fixed step size to tune.
+ * <p>
+ * The current chunk is kept between steps and looked up again only when a
+ * step crosses into another one. Chunks that aren't loaded stop the ray,
+ * and nothing is ever generated.
+ */
+public final class VoxelRaycast {
+    private VoxelRaycast() {
+    }
+
+    /**
+     * @param direction need not be normalized
+     * @param hit filled in when something is hit
+     * @return true if a non-air block lies within {@code maxDistance} of {@code origin}
+     */
+    public static boolean cast(World world, Vector3f origin, Vector3f direction, float maxDistance, RaycastHit hit) {
+        float length = direction.length();
+        if (length == 0) {
+            return false;
+        }
+        float dx = direction.x / length;
+        float dy = direction.y / length;
+        float dz = direction.z / length;
+
+        // Block centers sit on integer coordinates, so block n spans n - 0.5 to n + 0.5
+        float ox = origin.x + 0.5f;
+        float oy = origin.y + 0.5f;
+        float oz = origin.z + 0.5f;
+        int x = (int) Math.floor(ox);
+        int y = (int) Math.floor(oy);
+        int z = (int) Math.floor(oz);
+
+        int stepX = dx > 0 ? 1 : dx < 0 ? -1 : 0;
+        int stepY = dy > 0 ? 1 : dy < 0 ? -1 : 0;
+        int stepZ = dz > 0 ? 1 : dz < 0 ? -1 : 0;
+
+        // Distance along the ray to the next boundary on each axis, and between boundaries
+        float tMaxX = boundaryDistance(ox, x, dx);
+        float tMaxY = boundaryDistance(oy, y, dy);
+        float tMaxZ = boundaryDistance(oz, z, dz);
+        float tDeltaX = stepX != 0 ? Math.abs(1 / dx) : Float.POSITIVE_INFINITY;
+        float tDeltaY = stepY != 0 ? Math.abs(1 / dy) : Float.POSITIVE_INFINITY;
+        float tDeltaZ = stepZ != 0 ? Math.abs(1 / dz) : Float.POSITIVE_INFINITY;
+
+        int faceX = 0, faceY = 0, faceZ = 0;
+        float distance = 0;
+
+        int chunkX = x >> 4;
+        int chunkY = y >> 4;
+        int chunkZ = z >> 4;
+        Chunk chunk = world.getLoadedChunk(chunkX, chunkY, chunkZ);
+
+        while (distance <= maxDistance) {
+            if (x >> 4 != chunkX || y >> 4 != chunkY || z >> 4 != chunkZ) {
+                chunkX = x >> 4;
+                chunkY = y >> 4;
+                chunkZ = z >> 4;
+                chunk = world.getLoadedChunk(chunkX, chunkY, chunkZ);
+            }
+
+            if (chunk != null) {
+                byte block = chunk.getBlock(x & 15, y & 15, z & 15);
+                if (block != Block.AIR) {
+                    hit.set(x, y, z, block, faceX, faceY, faceZ, distance);
+                    return true;
+                }
+            } else if (chunkY >= 0 && chunkY < world.getHeight()) {
+                return false; // unloaded column
+            } else if ((chunkY < 0 && stepY <= 0) || (chunkY >= world.getHeight() && stepY >= 0)) {
+                return false; // outside the world and heading further out
+            }
+
+            if (tMaxX < tMaxY && tMaxX < tMaxZ) {
+                x += stepX;
+                distance = tMaxX;
+                tMaxX += tDeltaX;
+                faceX = -stepX;
+                faceY = 0;
+                faceZ = 0;
+            } else if (tMaxY < tMaxZ) {
+                y += stepY;
+                distance = tMaxY;
+                tMaxY += tDeltaY;
+                faceX = 0;
+                faceY = -stepY;
+                faceZ = 0;
+            } else {
+                z += stepZ;
+                distance = tMaxZ;
+                tMaxZ += tDeltaZ;
+                faceX = 0;
+                faceY = 0;
+                faceZ = -stepZ;
+            }
+        }
+        return false;
+    }
+
+    private static float boundaryDistance(float origin, int block, float direction) {
+        if (direction > 0) {
+            return (block + 1 - origin) / direction;
+        } else if (direction < 0) {
+            return (origin - block) / -direction;
+        }
+        return Float.POSITIVE_INFINITY;
+    }
+}
@@ -1,86 +1,238 @@
 package org.example;
 
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.stream.IntStream;
+
+/**
+ * Horizontally unbounded world, {@code height} chunks tall. Chunks are
+ * generated on demand and can be dropped again with {@link #unloadColumnsOutside}.
+ * With a {@link ChunkStorage}, chunks that were saved are loaded instead of
+ * generated, and edited chunks are saved when their column is dropped.
+ */
 public class World {
-    private int width, height, depth;
-    private Chunk[][][] chunks;
+    private final int height;
+    private final HeightmapGenerator heightmap;
+    private final ChunkStorage storage; // null if nothing is persisted
+
+    // Dense scratch blocks for generation, compressed into each Chunk's palette storage
+    private final ThreadLocal<byte[]> scratchBlocks = ThreadLocal.withInitial(() -> new byte[16 * 16 * 16]);
+
+    // Chunk columns generated so far, keyed by chunkKey(x, 0, z). Every vertical
+    // chunk of a column is generated together since they share one heightmap.
+    private final ConcurrentHashMap<Long, CompletableFuture<Chunk[]>> columns = new ConcurrentHashMap<>();
 
-    public World(int width, int height, int depth) {
-        this.width = width;
+    // Default terrain: lowest surface at y = 20, four octaves, enough cached heightmaps for a few view distances
+    private static final int MIN_TERRAIN_HEIGHT = 20;
+    private static final int TERRAIN_OCTAVES = 4;
+    private static final int HEIGHTMAP_CACHE_COLUMNS = 4096;
+
+    public World(int height) {
+        this(height, null);
+    }
+
+    public World(int height, ChunkStorage storage) {
+        this(height, new HeightmapGenerator(0L, TERRAIN_OCTAVES, MIN_TERRAIN_HEIGHT, height * 16 - 1, HEIGHTMAP_CACHE_COLUMNS), storage);
+    }
+
+    public World(int height, HeightmapGenerator heightmap, ChunkStorage storage) {
         this.height = height;
-        this.depth = depth;
-
-        chunks = new Chunk[width][height][depth];
-        generateChunks();
-    }
-
-    private void generateChunks() {
-        for (int x = 0; x < width; x++) {
-            for (int z = 0; z < depth; z++) {
-                // Get the terrain height at this (x,z) chunk column
-                int heightAtXZ = generateHeight(x, z);
-
-                for (int y = 0; y < height; y++) {
-                    Chunk chunk = new Chunk(x, y, z, 16, 16, 16);
-                    byte[][][] blocks = new byte[16][16][16];
-
-                    for (int bx = 0; bx < 16; bx++) {
-                        for (int bz = 0; bz < 16; bz++) {
-                            int worldX = x * 16 + bx;
-                            int worldZ = z * 16 + bz;
-
-                            for (int by = 0; by < 16; by++) {
-                                int worldY = y * 16 + by;
-
-                                if (worldY <= heightAtXZ) {
-                                    if (worldY == heightAtXZ) {
-                                        blocks[bx][by][bz] = Block.GRASS;
-                                    } else if (worldY > heightAtXZ - 5) {
-                                        blocks[bx][by][bz] = Block.DIRT;
-                                    } else {
-                                        blocks[bx][by][bz] = Block.STONE;
-                                    }
-                                } else {
-                                    blocks[bx][by][bz] = Block.AIR;
-                                }
-                            }
-                        }
-                    }
+        this.heightmap = heightmap;
+        this.storage = storage;
+    }
 
-                    chunk.setBlocks(blocks);
-                    chunks[x][y][z] = chunk;
-                }
+    /** Packs chunk coordinates into one key; each axis keeps its low 20 bits. */
+    public static long chunkKey(int x, int y, int z) {
+        return (((long) x & 0xFFFFFL) << 40) | (((long) y & 0xFFFFFL) << 20) | ((long) z & 0xFFFFFL);
+    }
+
+    public static int keyX(long key) {
+        return (int) (key >> 40) << 12 >> 12;
+    }
+
+    public static int keyY(long key) {
+        return (int) (key >> 20) << 12 >> 12;
+    }
+
+    public static int keyZ(long key) {
+        return (int) key << 12 >> 12;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /** The y of the topmost terrain block (the grass) at world block column (x, z). */
+    public int getTerrainHeight(int worldX, int worldZ) {
+        return heightmap.getHeight(worldX, worldZ);
+    }
+
+    /**
+     * Generates every column in the given chunk range in parallel on the common
+     * fork/join pool, so a known area is ready before it is needed. Columns that
+     * already exist are skipped.
+     */
+    public void pregenerate(int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ) {
+        if (minChunkX > maxChunkX || minChunkZ > maxChunkZ) return;
+
+        int columnsX = maxChunkX - minChunkX + 1;
+        IntStream.range(0, columnsX * (maxChunkZ - minChunkZ + 1)).parallel()
+                .forEach(i -> getColumn(minChunkX + i % columnsX, minChunkZ + i / columnsX));
+    }
+
+    /**
+     * Forgets every generated column further than {@code radius} chunks (Chebyshev
+     * distance) from the given column, saving any edited chunks in it first.
+     * They are loaded or regenerated if accessed again.
+     */
+    public void unloadColumnsOutside(int centerChunkX, int centerChunkZ, int radius) {
+        Iterator<Map.Entry<Long, CompletableFuture<Chunk[]>>> it = columns.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, CompletableFuture<Chunk[]>> entry = it.next();
+            long key = entry.getKey();
+            if (Math.abs(keyX(key) - centerChunkX) > radius || Math.abs(keyZ(key) - centerChunkZ) > radius) {
+                it.remove();
+                save(entry.getValue());
             }
         }
     }
 
+    /** Queues every loaded chunk with unsaved edits for saving. */
+    public void saveAll() {
+        for (CompletableFuture<Chunk[]> column : columns.values()) {
+            save(column);
+        }
+    }
+
+    private void save(CompletableFuture<Chunk[]> column) {
+        // A column still being generated can't have been edited yet
+        Chunk[] chunks = column.getNow(null);
+        if (storage == null || chunks == null) return;
+        for (Chunk chunk : chunks) {
+            storage.save(chunk);
+        }
+    }
+
+    public int getLoadedColumnCount() {
+        return columns.size();
+    }
+
     /**
-     * Generate terrain height at chunk column (chunkX, chunkZ).
-     * @param chunkX chunk x-coordinate
-     * @param chunkZ chunk z-coordinate
-     * @return world height at this chunk column
+     * Returns the column's chunks, generating them on the calling thread the first
+     * time the column is asked for. Concurrent callers for the same column wait for
+     * that one generation instead of repeating it.
      */
-    public int generateHeight(int chunkX, int chunkZ) {
-        int worldX = chunkX * 16;
-        int worldZ = chunkZ * 16;
-        double noiseVal = 0;
-
-        // Sample noise over 16x16 blocks to smooth height
-        for (int i = 0; i < 16; i++) {
-            for (int j = 0; j < 16; j++) {
-                noiseVal += Noise.noise((worldX + i) / 50.0, (worldZ + j) / 50.0);
+    private Chunk[] getColumn(int chunkX, int chunkZ) {
+        long key = chunkKey(chunkX, 0, chunkZ);
+        CompletableFuture<Chunk[]> column = columns.get(key);
+        if (column == null) {
+            CompletableFuture<Chunk[]> created = new CompletableFuture<>();
+            column = columns.putIfAbsent(key, created);
+            if (column == null) {
+                column = created;
+                completeColumn(key, chunkX, chunkZ, created);
             }
         }
-        noiseVal /= (16 * 16);
+        return column.join();
+    }
+
+    /**
+     * Starts loading or generating the column on {@code executor} unless it
+     * exists or is underway already. Its chunks show up in {@link #getLoadedChunk}
+     * once it's done; nothing waits for it on the calling thread.
+     */
+    public void requestColumn(int chunkX, int chunkZ, Executor executor) {
+        long key = chunkKey(chunkX, 0, chunkZ);
+        if (columns.containsKey(key)) return;
+        CompletableFuture<Chunk[]> created = new CompletableFuture<>();
+        if (columns.putIfAbsent(key, created) == null) {
+            executor.execute(() -> completeColumn(key, chunkX, chunkZ, created));
+        }
+    }
+
+    private void completeColumn(long key, int chunkX, int chunkZ, CompletableFuture<Chunk[]> column) {
+        try {
+            column.complete(generateColumn(chunkX, chunkZ));
+        } catch (RuntimeException e) {
+            columns.remove(key, column);
+            column.completeExceptionally(e);
+        }
+    }
+
+    private Chunk[] generateColumn(int x, int z) {
+        int[] heights = heightmap.getHeights(x, z);
+
+        Chunk[] column = new Chunk[height];
+        byte[] blocks = scratchBlocks.get();
+        for (int y = 0; y < height; y++) {
+            Chunk chunk = new Chunk(x, y, z, 16, 16, 16);
+            column[y] = chunk;
 
-        int maxHeight = height * 16 - 1;
-        int minHeight = 20;
+            byte[] saved = storage != null ? storage.load(x, y, z) : null;
+            if (saved != null) {
+                chunk.setBlocks(saved);
+                continue;
+            }
+
+            // Fill in the chunk's own x-fastest order; setBlocks then picks the storage
+            int index = 0;
+            for (int by = 0; by < 16; by++) {
+                int worldY = y * 16 + by;
+                for (int i = 0; i < 16 * 16; i++) {
+                    int surface = heights[i];
+
+                    byte blockId;
+                    if (worldY > surface) {
+                        blockId = Block.AIR;
+                    } else if (worldY == surface) {
+                        blockId = Block.GRASS;
+                    } else if (worldY > surface - 5) {
+                        blockId = Block.DIRT;
+                    } else {
+                        blockId = Block.STONE;
+                    }
+                    // heights and a chunk layer share the x + z * 16 order
+                    blocks[index++] = blockId;
+                }
+            }
+
+            chunk.setBlocks(blocks);
+        }
+        return column;
+    }
 
-        // Map noise from [-1,1] to [minHeight, maxHeight]
-        return (int) (((noiseVal + 1) / 2) * (maxHeight - minHeight)) + minHeight;
+    /**
+     * Sets a block by world block coordinates and queues its chunk for saving.
+     * Does nothing above or below the world.
+     * @return the chunk that was modified, or null
+     */
+    public Chunk setBlock(int worldX, int worldY, int worldZ, byte blockId) {
+        Chunk chunk = getChunk(Math.floorDiv(worldX, 16), Math.floorDiv(worldY, 16), Math.floorDiv(worldZ, 16));
+        if (chunk == null) return null;
+        chunk.setBlock(Math.floorMod(worldX, 16), Math.floorMod(worldY, 16), Math.floorMod(worldZ, 16), blockId);
+        if (storage != null) {
+            storage.save(chunk);
+        }
+        return chunk;
     }
 
+    /**
+     * Returns the chunk, generating its column on first access, or null above or
+     * below the world. Safe to call from several threads at once.
+     */
     public Chunk getChunk(int x, int y, int z) {
-        if (x < 0 || y < 0 || z < 0 || x >= width || y >= height || z >= depth) return null;
-        return chunks[x][y][z];
+        if (y < 0 || y >= height) return null;
+        return getColumn(x, z)[y];
+    }
+
+    /** Like {@link #getChunk}, but returns null instead of generating or waiting for a column that isn't loaded yet. */
+    public Chunk getLoadedChunk(int x, int y, int z) {
+        if (y < 0 || y >= height) return null;
+        CompletableFuture<Chunk[]> column = columns.get(chunkKey(x, 0, z));
+        Chunk[] chunks = column == null ? null : column.getNow(null);
+        return chunks == null ? null : chunks[y];
     }
 }
@@ -3,10 +3,11 @@
 out vec4 FragColor;
 
 in vec2 TexCoord;
+flat in float Layer;
 in vec3 Normal;
 in vec3 FragPos;
 
-uniform sampler2D textureSampler;
+uniform sampler2DArray textureSampler;  // one layer per block texture, see BlockTextures
 
 uniform vec3 lightDir;       // Directional light direction, normalized
 uniform vec3 lightColor;     // Light color (white usually)
@@ -25,8 +26,8 @@ void main() {
     // Calculate diffuse color
     vec3 diffuse = diff * lightColor;
 
-    // Sample texture color
-    vec3 texColor = texture(textureSampler, TexCoord).rgb;
+    // Layers wrap with GL_REPEAT, so merged quads repeat the texture without any seam or LOD fixups
+    vec3 texColor = texture(textureSampler, vec3(TexCoord, Layer)).rgb;
 
     // Combine lighting with texture color
     vec3 result = (ambientColor + diffuse) * texColor;
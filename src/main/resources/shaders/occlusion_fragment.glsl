@@ -0,0 +1,5 @@
+#version 330 core
+
+// Color writes are off during the occlusion pass; only the samples that pass the depth test matter
+void main() {
+}
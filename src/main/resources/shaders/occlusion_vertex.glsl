@@ -0,0 +1,12 @@
+#version 330 core
+
+// A unit cube as a 14-vertex triangle strip, one corner bit per axis per vertex
+uniform vec3 uBoxMin;
+uniform vec3 uBoxSize;
+uniform mat4 uViewProjection;
+
+void main() {
+    int bit = 1 << gl_VertexID;
+    vec3 corner = vec3((0x287a & bit) != 0, (0x02af & bit) != 0, (0x31e3 & bit) != 0);
+    gl_Position = uViewProjection * vec4(uBoxMin + corner * uBoxSize, 1.0);
+}
@@ -1,19 +1,44 @@
 #version 330 core
 
+#ifdef PACKED_VERTICES
+// See VertexFormat.PACKED for the bit layout
+layout(location = 0) in uvec2 aPacked;
+
+const vec3 NORMALS[6] = vec3[](
+    vec3(1, 0, 0), vec3(-1, 0, 0),
+    vec3(0, 1, 0), vec3(0, -1, 0),
+    vec3(0, 0, 1), vec3(0, 0, -1)
+);
+#else
 layout(location = 0) in vec3 aPos;
 layout(location = 1) in vec2 aTexCoord;
 layout(location = 2) in vec3 aNormal;  // NEW: normal vector input
+layout(location = 3) in float aLayer;  // texture array layer, see Block.getTextureLayer
+#endif
+
+// Per draw, via the indirect command's base instance; see ChunkArena
+layout(location = 4) in vec3 aChunkOrigin;
 
-out vec2 TexCoord;
+out vec2 TexCoord;     // in block units, repeats once per block
+flat out float Layer;
 out vec3 Normal;
 out vec3 FragPos;  // Position in world space
 
-uniform mat4 uMVP;
-uniform mat4 uModel;  // NEW: model matrix (for transforming position & normal)
+uniform mat4 uViewProjection;
 
 void main() {
-    FragPos = vec3(uModel * vec4(aPos, 1.0));
-    Normal = mat3(transpose(inverse(uModel))) * aNormal;
+#ifdef PACKED_VERTICES
+    uint word0 = aPacked.x;
+    vec3 aPos = vec3(word0 & 31u, (word0 >> 5) & 31u, (word0 >> 10) & 31u) - 0.5;
+    vec3 aNormal = NORMALS[(word0 >> 15) & 7u];
+    vec2 aTexCoord = vec2((word0 >> 18) & 31u, (word0 >> 23) & 31u);
+    float aLayer = float(aPacked.y & 255u);
+#endif
+
+    // Chunks are only ever translated, so normals pass through unchanged
+    FragPos = aPos + aChunkOrigin;
+    Normal = aNormal;
     TexCoord = aTexCoord;
-    gl_Position = uMVP * vec4(aPos, 1.0);
+    Layer = aLayer;
+    gl_Position = uViewProjection * vec4(FragPos, 1.0);
 }
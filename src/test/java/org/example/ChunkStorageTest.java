@@ -0,0 +1,195 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkStorageTest {
+    private static final int HEIGHT = 8;
+
+    @TempDir
+    Path dir;
+
+    /** A chunk with a few distinct blocks set, so it is dirty and its contents are recognizable. */
+    private static Chunk editedChunk(int chunkX, int chunkY, int chunkZ) {
+        Chunk chunk = new Chunk(chunkX, chunkY, chunkZ, 16, 16, 16);
+        for (int i = 0; i < 16; i++) {
+            chunk.setBlock(i, i, (i * 7) % 16, Block.STONE);
+            chunk.setBlock(15 - i, i, i, Block.DIRT);
+        }
+        chunk.setBlock(0, 15, 0, Block.GRASS);
+        return chunk;
+    }
+
+    @Test
+    void savedChunkLoadsAfterReopening() throws IOException {
+        // Negative coordinates land in other region files than positive ones
+        Chunk a = editedChunk(3, 2, -40);
+        Chunk b = editedChunk(-1, 7, 33);
+
+        ChunkStorage storage = new ChunkStorage(dir, HEIGHT);
+        storage.save(a);
+        storage.save(b);
+        storage.close();
+        assertFalse(a.isDirty());
+        assertFalse(b.isDirty());
+
+        storage = new ChunkStorage(dir, HEIGHT);
+        assertArrayEquals(a.getBlocks(), storage.load(3, 2, -40));
+        assertArrayEquals(b.getBlocks(), storage.load(-1, 7, 33));
+        assertNull(storage.load(3, 3, -40));
+        assertNull(storage.load(1000, 0, 1000));
+        storage.close();
+    }
+
+    @Test
+    void resavedChunkLoadsItsLatestBlocks() throws IOException {
+        Chunk chunk = new Chunk(0, 0, 0, 16, 16, 16);
+        chunk.setBlock(1, 1, 1, Block.STONE);
+        ChunkStorage storage = new ChunkStorage(dir, HEIGHT);
+        storage.save(chunk);
+        storage.close();
+
+        // Random ids don't deflate, so the new payload outgrows the one sector the first save took
+        Random random = new Random(1);
+        for (int y = 0; y < 16; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    chunk.setBlock(x, y, z, (byte) random.nextInt(256));
+                }
+            }
+        }
+        storage = new ChunkStorage(dir, HEIGHT);
+        storage.save(chunk);
+        storage.close();
+
+        storage = new ChunkStorage(dir, HEIGHT);
+        assertArrayEquals(chunk.getBlocks(), storage.load(0, 0, 0));
+        storage.close();
+    }
+
+    @Test
+    void queuedChunkLoadsBeforeItIsWritten() throws IOException {
+        ChunkStorage storage = new ChunkStorage(dir, HEIGHT);
+        Chunk chunk = editedChunk(5, 0, 5);
+        storage.save(chunk);
+
+        // Still inside the coalescing window, so this comes from the queue rather than disk
+        assertArrayEquals(chunk.getBlocks(), storage.load(5, 0, 5));
+        assertEquals(0, storage.getChunksSaved());
+        storage.close();
+    }
+
+    @Test
+    void chunksLoadWhileTheirBatchIsBeingWritten() throws IOException {
+        ChunkStorage storage = new ChunkStorage(dir, HEIGHT);
+        // Past the urgent depth the saver takes the whole queue as one batch straight away
+        int count = ChunkStorage.URGENT_DEPTH + 144;
+        Chunk[] chunks = new Chunk[count];
+        for (int i = 0; i < count; i++) {
+            chunks[i] = editedChunk(i % 20, i / 20 % HEIGHT, i / (20 * HEIGHT));
+            chunks[i].setBlock(i % 16, 0, i / 16 % 16, Block.GRASS);
+            storage.save(chunks[i]);
+        }
+
+        boolean flushed = false;
+        while (!flushed) {
+            flushed = storage.getQueueDepth() == 0;
+            for (Chunk chunk : chunks) {
+                assertArrayEquals(chunk.getBlocks(), storage.load(chunk.chunkX, chunk.chunkY, chunk.chunkZ));
+            }
+        }
+        storage.close();
+        assertEquals(count, storage.getChunksSaved());
+    }
+
+    @Test
+    void repeatedSavesOfOneChunkCoalesceIntoOneWrite() throws IOException {
+        ChunkStorage storage = new ChunkStorage(dir, HEIGHT);
+        Chunk chunk = new Chunk(0, 0, 0, 16, 16, 16);
+        for (int i = 0; i < 1000; i++) {
+            chunk.setBlock(i % 16, (i / 16) % 16, i % 7, (i & 1) == 0 ? Block.STONE : Block.AIR);
+            storage.save(chunk);
+        }
+        assertEquals(1, storage.getQueueDepth());
+        storage.close();
+
+        assertEquals(1, storage.getChunksSaved());
+        storage = new ChunkStorage(dir, HEIGHT);
+        assertArrayEquals(chunk.getBlocks(), storage.load(0, 0, 0));
+        storage.close();
+    }
+
+    @Test
+    void failedWriteIsRetried() throws IOException, InterruptedException {
+        // A directory where the region file belongs makes every write to it fail
+        Path blocker = Files.createDirectory(dir.resolve("r.0.0.region"));
+        ChunkStorage storage = new ChunkStorage(dir, HEIGHT);
+        Chunk chunk = editedChunk(1, 0, 1);
+        storage.save(chunk);
+        while (storage.getSaveFailures() == 0) {
+            Thread.sleep(10);
+        }
+        assertTrue(chunk.isDirty());
+
+        Files.delete(blocker);
+        storage.close();
+        assertEquals(1, storage.getChunksSaved());
+        assertFalse(chunk.isDirty());
+
+        storage = new ChunkStorage(dir, HEIGHT);
+        assertArrayEquals(chunk.getBlocks(), storage.load(1, 0, 1));
+        storage.close();
+    }
+
+    @Test
+    void failingChunkIsGivenUpOn() throws IOException {
+        Files.createDirectory(dir.resolve("r.0.0.region"));
+        ChunkStorage storage = new ChunkStorage(dir, HEIGHT);
+        Chunk chunk = editedChunk(1, 0, 1);
+        storage.save(chunk);
+        // Closing flushes without waiting, so the retries run back to back
+        storage.close();
+        assertEquals(ChunkStorage.MAX_SAVE_ATTEMPTS, storage.getSaveFailures());
+        assertEquals(0, storage.getChunksSaved());
+        assertTrue(chunk.isDirty());
+    }
+
+    @Test
+    void idleRegionsAreClosed() throws IOException {
+        int count = ChunkStorage.MAX_OPEN_REGIONS * 3;
+        Chunk[] chunks = new Chunk[count];
+        ChunkStorage storage = new ChunkStorage(dir, HEIGHT);
+        for (int i = 0; i < count; i++) {
+            // One chunk per region, walking away from the origin along x
+            chunks[i] = editedChunk(i * RegionFile.SIZE, 0, -1);
+            storage.save(chunks[i]);
+        }
+        storage.close();
+        assertEquals(count, storage.getChunksSaved());
+
+        storage = new ChunkStorage(dir, HEIGHT);
+        for (int pass = 0; pass < 2; pass++) {
+            for (Chunk chunk : chunks) {
+                assertArrayEquals(chunk.getBlocks(), storage.load(chunk.chunkX, 0, -1));
+                assertTrue(storage.getOpenRegionCount() <= ChunkStorage.MAX_OPEN_REGIONS);
+            }
+        }
+        storage.close();
+    }
+
+    @Test
+    void cleanChunkIsNotQueued() throws IOException {
+        ChunkStorage storage = new ChunkStorage(dir, HEIGHT);
+        storage.save(new Chunk(0, 0, 0, 16, 16, 16));
+        assertEquals(0, storage.getQueueDepth());
+        storage.close();
+        assertEquals(0, storage.getChunksSaved());
+    }
+}
@@ -0,0 +1,165 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.lwjgl.system.MemoryUtil;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Meshes a patch of generated terrain with every chunk at a random level of
+ * detail and checks no face is missing where a coarse chunk meets a finer one.
+ * Each chunk's solid volume is the blocks its level's cells cover; every face
+ * between the union of those volumes and air must be covered by some quad.
+ */
+class LodSeamTest {
+    private static final int HEIGHT = 8;
+    private static final int SIZE = 16;
+    private static final int CHUNKS = 4; // per horizontal axis
+
+    private final World world = new World(HEIGHT);
+    private final ChunkSnapshot snapshot = new ChunkSnapshot();
+    private final ChunkSnapshot downsampled = new ChunkSnapshot();
+    private final VertexBuilder builder = new VertexBuilder(VertexFormat.FLOAT, 4096);
+
+    @AfterEach
+    void free() {
+        builder.free();
+    }
+
+    @Test
+    void coarserLevelsHaveFewerVertices() {
+        int previous = Integer.MAX_VALUE;
+        for (int level = 0; level < ChunkMesh.LOD_LEVELS; level++) {
+            int vertices = 0;
+            for (int x = 0; x < CHUNKS; x++) {
+                for (int y = 0; y < HEIGHT; y++) {
+                    for (int z = 0; z < CHUNKS; z++) {
+                        mesh(world.getChunk(x, y, z), level);
+                        vertices += builder.getVertexCount();
+                    }
+                }
+            }
+            assertTrue(vertices > 0);
+            assertTrue(vertices < previous, "level " + level + " has " + vertices + " vertices");
+            previous = vertices;
+        }
+    }
+
+    @Test
+    void mixedLevelsLeaveNoHoles() {
+        Random random = new Random(1);
+        for (int trial = 0; trial < 5; trial++) {
+            Set<Long> volume = new HashSet<>();
+            Set<Long> faces = new HashSet<>();
+            for (int cx = 0; cx < CHUNKS; cx++) {
+                for (int cy = 0; cy < HEIGHT; cy++) {
+                    for (int cz = 0; cz < CHUNKS; cz++) {
+                        ChunkSnapshot meshed = mesh(world.getChunk(cx, cy, cz), random.nextInt(ChunkMesh.LOD_LEVELS));
+                        addVolume(meshed, cx * SIZE, cy * SIZE, cz * SIZE, volume);
+                        addFaces(cx * SIZE, cy * SIZE, cz * SIZE, faces);
+                    }
+                }
+            }
+
+            int exposed = 0;
+            for (long block : volume) {
+                int x = (int) (block >> 40) - 1000;
+                int y = (int) ((block >> 20) & 0xFFFFF) - 1000;
+                int z = (int) (block & 0xFFFFF) - 1000;
+                for (int axis = 0; axis < 3; axis++) {
+                    for (int dir = -1; dir <= 1; dir += 2) {
+                        int[] n = {x, y, z};
+                        n[axis] += dir;
+                        // Faces on the edge of the patch border chunks that weren't meshed
+                        if (n[0] < 0 || n[1] < 0 || n[2] < 0
+                                || n[0] >= CHUNKS * SIZE || n[1] >= HEIGHT * SIZE || n[2] >= CHUNKS * SIZE) continue;
+                        if (volume.contains(key(n[0], n[1], n[2]))) continue;
+                        exposed++;
+                        assertTrue(faces.contains(block * 8 + face(axis, dir)),
+                                "trial " + trial + ": no face on side " + face(axis, dir) + " of " + x + "," + y + "," + z);
+                    }
+                }
+            }
+            assertTrue(exposed > 0);
+        }
+    }
+
+    /** Meshes the chunk at {@code level} into the builder and returns the snapshot it was meshed from. */
+    private ChunkSnapshot mesh(Chunk chunk, int level) {
+        snapshot.capture(world, chunk);
+        ChunkSnapshot meshed = snapshot;
+        if (level > 0) {
+            downsampled.downsample(snapshot, 1 << level);
+            meshed = downsampled;
+        }
+        builder.reset(VertexFormat.FLOAT);
+        ChunkMesher.generate(meshed, builder, ChunkMesher.Mode.GREEDY);
+        return meshed;
+    }
+
+    private static void addVolume(ChunkSnapshot meshed, int ox, int oy, int oz, Set<Long> volume) {
+        int scale = meshed.getScale();
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                for (int z = 0; z < SIZE; z++) {
+                    if (meshed.getBlock(x / scale, y / scale, z / scale) != Block.AIR) {
+                        volume.add(key(ox + x, oy + y, oz + z));
+                    }
+                }
+            }
+        }
+    }
+
+    /** Splits each quad in the builder into the unit block faces it covers. */
+    private void addFaces(int ox, int oy, int oz, Set<Long> faces) {
+        int stride = VertexFormat.FLOAT.getBytesPerVertex();
+        int[] origin = {ox, oy, oz};
+        float[] min = new float[3];
+        float[] max = new float[3];
+        float[] normal = new float[3];
+        for (int quad = 0; quad < builder.getVertexCount() / QuadIndexBuffer.VERTICES_PER_QUAD; quad++) {
+            for (int axis = 0; axis < 3; axis++) {
+                min[axis] = Float.MAX_VALUE;
+                max[axis] = -Float.MAX_VALUE;
+            }
+            for (int v = 0; v < QuadIndexBuffer.VERTICES_PER_QUAD; v++) {
+                long vertex = builder.getAddress() + (long) (quad * QuadIndexBuffer.VERTICES_PER_QUAD + v) * stride;
+                for (int axis = 0; axis < 3; axis++) {
+                    float position = MemoryUtil.memGetFloat(vertex + axis * Float.BYTES);
+                    min[axis] = Math.min(min[axis], position);
+                    max[axis] = Math.max(max[axis], position);
+                    normal[axis] = MemoryUtil.memGetFloat(vertex + (3 + axis) * Float.BYTES);
+                }
+            }
+
+            int axis = normal[0] != 0 ? 0 : normal[1] != 0 ? 1 : 2;
+            int dir = (int) normal[axis];
+            // Block centers sit on integers, so the face plane is half a block out from the solid block
+            int solid = Math.round(min[axis] - dir * 0.5f);
+            int a1 = (axis + 1) % 3;
+            int a2 = (axis + 2) % 3;
+            for (int i = Math.round(min[a1] + 0.5f); i < Math.round(max[a1] + 0.5f); i++) {
+                for (int j = Math.round(min[a2] + 0.5f); j < Math.round(max[a2] + 0.5f); j++) {
+                    int[] block = new int[3];
+                    block[axis] = origin[axis] + solid;
+                    block[a1] = origin[a1] + i;
+                    block[a2] = origin[a2] + j;
+                    faces.add(key(block[0], block[1], block[2]) * 8 + face(axis, dir));
+                }
+            }
+        }
+    }
+
+    private static int face(int axis, int dir) {
+        return axis * 2 + (dir > 0 ? 1 : 0);
+    }
+
+    private static long key(int x, int y, int z) {
+        return ((long) (x + 1000) << 40) | ((long) (y + 1000) << 20) | (z + 1000);
+    }
+}
@@ -0,0 +1,71 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NoiseTest {
+    private static final int SAMPLES = 20000;
+
+    /** Sample points spread over a few hundred units, including negative coordinates. */
+    private static double[][] points() {
+        Random random = new Random(42);
+        double[][] points = new double[SAMPLES][3];
+        for (double[] p : points) {
+            for (int axis = 0; axis < 3; axis++) {
+                p[axis] = (random.nextDouble() - 0.5) * 400;
+            }
+        }
+        return points;
+    }
+
+    @Test
+    void noise3dIsDeterministicForASeed() {
+        Noise a = new Noise(1234);
+        Noise b = new Noise(1234);
+        for (double[] p : points()) {
+            assertEquals(a.noise(p[0], p[1], p[2]), b.noise(p[0], p[1], p[2]));
+            assertEquals(a.noise(p[0], p[1], p[2]), a.noise(p[0], p[1], p[2]));
+        }
+    }
+
+    @Test
+    void noise3dDiffersAcrossSeeds() {
+        Noise a = new Noise(1234);
+        Noise b = new Noise(1235);
+        int differing = 0;
+        for (double[] p : points()) {
+            if (Math.abs(a.noise(p[0], p[1], p[2]) - b.noise(p[0], p[1], p[2])) > 1e-6) {
+                differing++;
+            }
+        }
+        assertTrue(differing > SAMPLES * 9 / 10, differing + " of " + SAMPLES + " samples differ");
+    }
+
+    @Test
+    void noise3dStaysInRangeAndUsesIt() {
+        Noise noise = new Noise(99);
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        for (double[] p : points()) {
+            double value = noise.noise(p[0], p[1], p[2]);
+            assertTrue(value >= -1 && value <= 1, value + " at " + p[0] + ", " + p[1] + ", " + p[2]);
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        // Not flat or stuck on one sign
+        assertTrue(min < -0.5, "min " + min);
+        assertTrue(max > 0.5, "max " + max);
+    }
+
+    @Test
+    void noise3dIsContinuous() {
+        Noise noise = new Noise(7);
+        for (double[] p : points()) {
+            double step = Math.abs(noise.noise(p[0], p[1], p[2]) - noise.noise(p[0] + 1e-4, p[1] - 1e-4, p[2] + 1e-4));
+            assertTrue(step < 0.01, "jump of " + step + " at " + p[0] + ", " + p[1] + ", " + p[2]);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegionFileTest {
+    private static final int HEIGHT = 8;
+
+    @TempDir
+    Path dir;
+
+    private static byte[] payload(int length, long seed) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    @Test
+    void unsavedChunkReadsAsNull() throws IOException {
+        RegionFile region = new RegionFile(dir.resolve("r.region"), HEIGHT);
+        assertNull(region.read(0, 0, 0));
+        region.close();
+    }
+
+    @Test
+    void writeThenReadRoundTrips() throws IOException {
+        RegionFile region = new RegionFile(dir.resolve("r.region"), HEIGHT);
+        byte[] a = payload(100, 1);
+        byte[] b = payload(5000, 2);
+        region.write(3, 2, 31, a, a.length);
+        region.write(31, 7, 0, b, b.length);
+
+        assertArrayEquals(a, region.read(3, 2, 31));
+        assertArrayEquals(b, region.read(31, 7, 0));
+        assertNull(region.read(3, 3, 31));
+        region.close();
+    }
+
+    @Test
+    void writeUsesOnlyTheGivenLength() throws IOException {
+        RegionFile region = new RegionFile(dir.resolve("r.region"), HEIGHT);
+        byte[] data = payload(64, 3);
+        region.write(0, 0, 0, data, 10);
+
+        byte[] read = region.read(0, 0, 0);
+        assertEquals(10, read.length);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(data[i], read[i]);
+        }
+        region.close();
+    }
+
+    @Test
+    void largerOverwriteMovesWithoutDisturbingNeighbors() throws IOException {
+        RegionFile region = new RegionFile(dir.resolve("r.region"), HEIGHT);
+        byte[] small = payload(1000, 4);
+        byte[] neighbor = payload(1000, 5);
+        region.write(0, 0, 0, small, small.length);
+        region.write(1, 0, 0, neighbor, neighbor.length);
+
+        // Three sectors no longer fit the one sector between the header and the neighbor
+        byte[] large = payload(3 * 4096 - 7, 6);
+        region.write(0, 0, 0, large, large.length);
+
+        assertArrayEquals(large, region.read(0, 0, 0));
+        assertArrayEquals(neighbor, region.read(1, 0, 0));
+        region.close();
+    }
+
+    @Test
+    void freedSectorsAreReused() throws IOException {
+        Path path = dir.resolve("r.region");
+        RegionFile region = new RegionFile(path, HEIGHT);
+        byte[] big = payload(4 * 4096, 7);
+        region.write(0, 0, 0, big, big.length);
+        region.write(1, 0, 0, big, big.length);
+        long size = Files.size(path);
+
+        // Shrinking the first payload frees three sectors; a three-sector payload elsewhere lands in them
+        byte[] small = payload(100, 8);
+        region.write(0, 0, 0, small, small.length);
+        byte[] three = payload(3 * 4096, 9);
+        region.write(2, 0, 0, three, three.length);
+
+        assertEquals(size, Files.size(path));
+        assertArrayEquals(small, region.read(0, 0, 0));
+        assertArrayEquals(big, region.read(1, 0, 0));
+        assertArrayEquals(three, region.read(2, 0, 0));
+        region.close();
+    }
+
+    @Test
+    void reopenedFileKeepsPayloadsAndFreeSpace() throws IOException {
+        Path path = dir.resolve("r.region");
+        RegionFile region = new RegionFile(path, HEIGHT);
+        byte[] a = payload(9000, 10);
+        byte[] b = payload(200, 11);
+        region.write(5, 1, 6, a, a.length);
+        region.write(6, 1, 5, b, b.length);
+        region.close();
+
+        region = new RegionFile(path, HEIGHT);
+        assertArrayEquals(a, region.read(5, 1, 6));
+        assertArrayEquals(b, region.read(6, 1, 5));
+
+        // The used-sector map is rebuilt from the table, so a new payload overwrites neither
+        byte[] c = payload(5000, 12);
+        region.write(0, 0, 0, c, c.length);
+        assertArrayEquals(a, region.read(5, 1, 6));
+        assertArrayEquals(b, region.read(6, 1, 5));
+        assertArrayEquals(c, region.read(0, 0, 0));
+        region.close();
+    }
+
+    @Test
+    void refusesFileForAnotherWorldHeight() throws IOException {
+        Path path = dir.resolve("r.region");
+        new RegionFile(path, HEIGHT).close();
+        assertThrows(IOException.class, () -> new RegionFile(path, HEIGHT + 1));
+    }
+
+    @Test
+    void refusesForeignFile() throws IOException {
+        Path path = dir.resolve("r.region");
+        Files.write(path, payload(8192, 13));
+        assertThrows(IOException.class, () -> new RegionFile(path, HEIGHT));
+    }
+}